@@ -0,0 +1,85 @@
+package model;
+
+import contract.request.LicensesRequest;
+import org.apache.commons.lang3.SerializationUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode throughput of the stored models in the binary format and in the Java serialization format written before it.
+ * The encoded sizes are printed at setup.
+ *
+ * Run with: gradle jmh -Pjmh.include=ModelCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelCodecBenchmark {
+
+    @Param({"BINARY", "JAVA"})
+    public String format;
+
+    private byte[] license;
+    private byte[] order;
+    private LicensesRequest licensesRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        License l = new License(
+                "8f8b9d3e-2a4c-4c43-a2f1-5b8f6d3c2e10",
+                "d1b7c5e2a9f04f6a8e3b2c1d0f9e8a7b",
+                new Allocated("8f8b9d3e-2a4c-4c43-a2f1-5b8f6d3c2e10", "Org2MSP", "2026-10-18 00:00:00", "order1")
+        );
+        Order o = new Order("order1", "Org2MSP", Order.Status.ALLOCATED, "2026-01-01 00:00:00",
+                            "2026-01-02 00:00:00", "2026-01-03 00:00:00", null, "asset1", 2, 12, 99.5,
+                            "2027-01-03 00:00:00", new ArrayList<>(List.of("1", "2")));
+
+        List<String> licenses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            licenses.add("8f8b9d3e-2a4c-4c43-a2f1-" + String.format("%012d", i));
+        }
+        licensesRequest = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00", licenses);
+
+        if (format.equals("BINARY")) {
+            license = l.toByteArray();
+            order = o.toByteArray();
+        } else {
+            license = SerializationUtils.serialize(l);
+            order = SerializationUtils.serialize(o);
+        }
+
+        System.out.printf("%n%s license=%d bytes order=%d bytes%n", format, license.length, order.length);
+    }
+
+    @Benchmark
+    public License decodeLicense() {
+        return License.fromByteArray(license);
+    }
+
+    // how a range scan classifies a license, a flag read in the binary format and a full decode otherwise
+    @Benchmark
+    public boolean isAllocatedLicense() {
+        return ModelCodec.isAllocatedLicense(license);
+    }
+
+    @Benchmark
+    public Order decodeOrder() {
+        return Order.fromByteArray(order);
+    }
+
+    // the hash used to verify an allocate or deallocate request of 1000 licenses
+    @Benchmark
+    public byte[] digestLicensesRequest() {
+        if (format.equals("BINARY")) {
+            return ModelCodec.digest(licensesRequest);
+        }
+
+        return SHA256.hashBytesToBytes(SerializationUtils.serialize(licensesRequest));
+    }
+}
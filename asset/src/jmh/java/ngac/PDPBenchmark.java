@@ -0,0 +1,65 @@
+package ngac;
+
+import mock.MockContext;
+import mock.MockIdentity;
+import model.Status;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static mock.MockContextUtil.newTestContext;
+
+/**
+ * Benchmarks for the asset chaincode PDP. Each invocation starts a new mock transaction so no decisions are reused
+ * across invocations. The asset policy is not stored on the ledger, the number of accounts is the number of distinct
+ * target accounts the checks are spread over.
+ *
+ * Run with: gradle jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDPBenchmark {
+
+    @Param({"3", "50", "500", "5000"})
+    public int accounts;
+
+    private MockContext acqCtx;
+    private MockContext loCtx;
+    private String[] targetAccounts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        acqCtx = newTestContext(MockIdentity.ORG1_ACQ);
+        acqCtx.getStub().setAccountStatus(Status.AUTHORIZED);
+        loCtx = newTestContext(MockIdentity.ORG1_LO);
+        loCtx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+        targetAccounts = new String[accounts];
+        targetAccounts[0] = "Org2MSP";
+        targetAccounts[1] = "Org3MSP";
+        for (int i = 2; i < accounts; i++) {
+            targetAccounts[i] = "Member" + i + "MSP";
+        }
+    }
+
+    @Benchmark
+    public void canReadOrder() {
+        newTransaction(acqCtx);
+        PDP.canReadOrder(acqCtx, targetAccounts[next % accounts]);
+    }
+
+    @Benchmark
+    public void canWriteAsset() {
+        newTransaction(loCtx);
+        PDP.canWriteAsset(loCtx);
+    }
+
+    private void newTransaction(MockContext ctx) {
+        ctx.setTxId(String.valueOf(next++));
+    }
+}
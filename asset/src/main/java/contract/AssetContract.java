@@ -5,6 +5,7 @@ import contract.response.AssetDetailResponse;
 import contract.response.AssetResponse;
 import contract.response.IdResponse;
 import model.*;
+import ngac.DecisionContext;
 import ngac.PDP;
 import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.Context;
@@ -13,6 +14,8 @@ import org.hyperledger.fabric.contract.annotation.Contract;
 import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyModification;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
@@ -21,8 +24,7 @@ import java.time.Instant;
 import java.util.*;
 
 import static model.DateFormatter.isExpired;
-import static model.LicenseKey.hashedLicenseKey;
-import static model.LicenseKey.licenseKey;
+import static model.LicenseKey.*;
 import static ngac.PolicyBuilder.ADMINMSP;
 
 @Contract(
@@ -36,7 +38,8 @@ import static ngac.PolicyBuilder.ADMINMSP;
 public class AssetContract implements ContractInterface {
 
     public static final String  ADMINMSP_IPDC = accountIPDC(ADMINMSP);
-    public static final String ASSET_PREFIX = "asset:";
+    public static final String ASSET_KEY = "asset";
+    public static final String LICENSE_COUNT_KEY = "count";
 
     private static final Logger log = Logger.getLogger(AssetContract.class);
 
@@ -45,7 +48,16 @@ public class AssetContract implements ContractInterface {
     }
 
     public static String assetKey(String assetId) {
-        return ASSET_PREFIX + assetId;
+        return new CompositeKey(ASSET_KEY, assetId).toString();
+    }
+
+    public static String licenseCountKey(String assetId) {
+        return new CompositeKey(LICENSE_COUNT_KEY, assetId).toString();
+    }
+
+    @Override
+    public Context createContext(ChaincodeStub stub) {
+        return new DecisionContext(stub);
     }
 
     // use transient for license ids
@@ -66,7 +78,10 @@ public class AssetContract implements ContractInterface {
         ctx.getStub().putPrivateData(ADMINMSP_IPDC, assetKey(id), asset.toByteArray());
 
         // create the license keys, writing the hash to the public ledger
+        Set<String> licenseIds = new HashSet<>();
         for (LicenseIdWithSaltRequest licenseIdWithSaltRequest : req.getLicenses()) {
+            licenseIds.add(licenseIdWithSaltRequest.getId());
+
             String key = licenseKey(
                     id,
                     licenseIdWithSaltRequest.getId()
@@ -79,12 +94,16 @@ public class AssetContract implements ContractInterface {
                     new License(licenseIdWithSaltRequest.getId(), licenseIdWithSaltRequest.getSalt(), null)
                             .toByteArray()
             );
+            putAvailableLicense(ctx, id, licenseIdWithSaltRequest.getId());
 
             // write to ledger -- a byte array of length 1 for the value will indicate that it does exist on the ledger
             // but nothing is in the value
             ctx.getStub().putState(hashedLicenseKey(id, licenseIdWithSaltRequest.getId(), licenseIdWithSaltRequest.getSalt()), new byte[]{0});
         }
 
+        LicenseCount count = new LicenseCount(licenseIds.size(), licenseIds.size(), 0);
+        ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseCountKey(id), count.toByteArray());
+
         return new IdResponse(id);
     }
 
@@ -99,7 +118,9 @@ public class AssetContract implements ContractInterface {
         Asset asset = getAsset(ctx, req.getAssetId());
 
         // check that the licenses are not duplicates
+        Set<String> licenseIds = new HashSet<>();
         for (LicenseIdWithSaltRequest licenseIdWithSaltRequest : req.getLicenses()) {
+            licenseIds.add(licenseIdWithSaltRequest.getId());
 
             // it's ok to throw an exception here indicating that a license key exists because the cid would have passed
             // the ngac check for adding licenses to get here
@@ -114,10 +135,13 @@ public class AssetContract implements ContractInterface {
                     licenseKey(asset.getId(), licenseIdWithSaltRequest.getId()),
                     new License(licenseIdWithSaltRequest.getId(), licenseIdWithSaltRequest.getSalt(), null).toByteArray()
             );
+            putAvailableLicense(ctx, asset.getId(), licenseIdWithSaltRequest.getId());
 
             // write to ledger
             ctx.getStub().putState(hashedLicenseKey(asset.getId(), licenseIdWithSaltRequest.getId(), licenseIdWithSaltRequest.getSalt()), new byte[]{0});
         }
+
+        updateLicenseCount(ctx, asset.getId(), licenseIds.size(), 0);
     }
 
     @Transaction
@@ -146,10 +170,13 @@ public class AssetContract implements ContractInterface {
 
             // delete license key from ADMINMSP
             ctx.getStub().delPrivateData(ADMINMSP_IPDC, key);
+            delAvailableLicense(ctx, asset.getId(), licenseId);
 
             // delete license key from ledger
             ctx.getStub().delState(hashedLicenseKey(asset.getId(), licenseId, license.getSalt()));
         }
+
+        updateLicenseCount(ctx, asset.getId(), -req.getLicenses().size(), 0);
     }
 
     @Transaction
@@ -175,7 +202,7 @@ public class AssetContract implements ContractInterface {
 
         List<AssetResponse> assets = new ArrayList<>();
 
-        try(QueryResultsIterator<KeyValue> assetRange = getAssetQueryIterator(ctx, ASSET_PREFIX)) {
+        try(QueryResultsIterator<KeyValue> assetRange = getAssetQueryIterator(ctx, ASSET_KEY)) {
             for (KeyValue next : assetRange) {
                 byte[] value = next.getValue();
 
@@ -184,7 +211,7 @@ public class AssetContract implements ContractInterface {
                 AssetResponse assetResponse = new AssetResponse(
                         asset.getId(),
                         asset.getName(),
-                        getAvailableLicenses(ctx, asset.getId()).size(),
+                        getLicenseCount(ctx, asset.getId()).getAvailable(),
                         asset.getStartDate(),
                         asset.getEndDate()
                 );
@@ -203,29 +230,19 @@ public class AssetContract implements ContractInterface {
         AssetIdRequest req = new AssetIdRequest(ctx);
 
         Asset asset = getAsset(ctx, req.getAssetId());
-        List<License> availableLicenses = getAvailableLicenses(ctx, asset.getId());
+        LicenseCount count = getLicenseCount(ctx, asset.getId());
+        Set<String> availableLicenseIds = new HashSet<>(getAvailableLicenseIds(ctx, asset.getId(), Integer.MAX_VALUE));
 
         // build a map with all allocated licenses: account -> orderId -> licenses
-        int total = availableLicenses.size();
         Map<String, Map<String, Set<LicenseWithExpiration>>> allocatedLicenses = getAllocatedLicensesMap(ctx, req.getAssetId());
-        for (Map.Entry<String, Map<String, Set<LicenseWithExpiration>>> e : allocatedLicenses.entrySet()) {
-            for (Set<LicenseWithExpiration> value : e.getValue().values()) {
-                total += value.size();
-            }
-        }
-
-        Set<String> availableLicenseIds = new HashSet<>();
-        for (License license : availableLicenses) {
-            availableLicenseIds.add(license.getId());
-        }
 
         AssetDetailResponse response = new AssetDetailResponse(
                 asset.getId(),
                 asset.getName(),
-                availableLicenses.size(),
+                count.getAvailable(),
                 asset.getStartDate(),
                 asset.getEndDate(),
-                total,
+                count.getTotal(),
                 availableLicenseIds,
                 allocatedLicenses
         );
@@ -260,28 +277,183 @@ public class AssetContract implements ContractInterface {
         }
     }
 
-    List<License> getAvailableLicenses(Context ctx, String assetId) {
-        // provide empty license id to get all licenses for asset
-        String key = licenseKey(assetId, "");
-        try(QueryResultsIterator<KeyValue> licenseRange = getAssetQueryIterator(ctx, key)) {
-            List<License> licenses = new ArrayList<>();
+    @Transaction
+    public String[] GetLicenseIndexRepairs(Context ctx) {
+        AssetIdRequest req = new AssetIdRequest(ctx);
+
+        PDP.canWriteAsset(ctx);
+
+        Asset asset = getAsset(ctx, req.getAssetId());
+
+        // compare the licenses to the available license index, returning the ids of available licenses that are not
+        // indexed, allocated licenses that are indexed, and indexed licenses that no longer exist
+        Set<String> indexed = new HashSet<>(getAvailableLicenseIds(ctx, asset.getId(), Integer.MAX_VALUE));
+        List<String> repairs = new ArrayList<>();
+        try(QueryResultsIterator<KeyValue> licenseRange = getAssetQueryIterator(ctx, LICENSE_KEY, asset.getId())) {
+            for (KeyValue next : licenseRange) {
+                String licenseId = licenseIdFromKey(next.getKey());
+                if (indexed.remove(licenseId) == ModelCodec.isAllocatedLicense(next.getValue())) {
+                    repairs.add(licenseId);
+                }
+            }
+        } catch (Exception e) {
+            throw new ChaincodeException(e);
+        }
+
+        repairs.addAll(indexed);
+
+        return repairs.toArray(String[]::new);
+    }
+
+    @Transaction
+    public void RepairLicenseIndex(Context ctx) {
+        AssetIdAndLicensesRequest req = new AssetIdAndLicensesRequest(ctx);
+
+        PDP.canWriteAsset(ctx);
+
+        Asset asset = getAsset(ctx, req.getAssetId());
+
+        // the licenses are read by key, a range query cannot be used in a transaction that writes private data
+        for (String licenseId : req.getLicenses()) {
+            byte[] bytes = ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseKey(asset.getId(), licenseId));
+            if (bytes.length != 0 && !ModelCodec.isAllocatedLicense(bytes)) {
+                putAvailableLicense(ctx, asset.getId(), licenseId);
+            } else {
+                delAvailableLicense(ctx, asset.getId(), licenseId);
+            }
+        }
+    }
+
+    @Transaction
+    public String[] GetLicenseIds(Context ctx) {
+        AssetIdRequest req = new AssetIdRequest(ctx);
+
+        PDP.canWriteAsset(ctx);
+
+        Asset asset = getAsset(ctx, req.getAssetId());
+
+        try(QueryResultsIterator<KeyValue> licenseRange = getAssetQueryIterator(ctx, LICENSE_KEY, asset.getId())) {
+            List<String> licenseIds = new ArrayList<>();
+            for (KeyValue next : licenseRange) {
+                licenseIds.add(licenseIdFromKey(next.getKey()));
+            }
+
+            return licenseIds.toArray(String[]::new);
+        } catch (Exception e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    @Transaction
+    public LicenseCount RepairLicenseCount(Context ctx) {
+        AssetIdAndLicensesRequest req = new AssetIdAndLicensesRequest(ctx);
+
+        PDP.canWriteAsset(ctx);
+
+        Asset asset = getAsset(ctx, req.getAssetId());
+
+        // the licenses are read by key, a range query cannot be used in a transaction that writes private data. Each
+        // license is in the read set, so a license that is allocated, returned or removed before this transaction
+        // commits fails it with an MVCC conflict instead of writing a stale count
+        LicenseCount count = new LicenseCount();
+        for (String licenseId : req.getLicenses()) {
+            byte[] bytes = ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseKey(asset.getId(), licenseId));
+            if (bytes.length == 0) {
+                continue;
+            }
+
+            if (ModelCodec.isAllocatedLicense(bytes)) {
+                count.add(0, 1);
+            } else {
+                count.add(1, 0);
+            }
+        }
+
+        ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseCountKey(asset.getId()), count.toByteArray());
+
+        return count;
+    }
+
+    /**
+     * Get the ids of the available licenses of an asset from the available license index. Only the index keys are read
+     * and the scan stops after limit ids.
+     */
+    List<String> getAvailableLicenseIds(Context ctx, String assetId, int limit) {
+        try(QueryResultsIterator<KeyValue> availableRange = getAssetQueryIterator(ctx, AVAILABLE_KEY, assetId)) {
+            List<String> licenseIds = new ArrayList<>();
+
+            Iterator<KeyValue> iterator = availableRange.iterator();
+            while (licenseIds.size() < limit && iterator.hasNext()) {
+                licenseIds.add(licenseIdFromKey(iterator.next().getKey()));
+            }
+
+            return licenseIds;
+        } catch (Exception e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    // the available license index has a key for each license of an asset that is not allocated, it is updated with the
+    // license in every transaction that adds, removes, allocates or deallocates a license
+    static void putAvailableLicense(Context ctx, String assetId, String licenseId) {
+        // the value is unused but cannot be empty, an empty value is a delete
+        ctx.getStub().putPrivateData(ADMINMSP_IPDC, availableLicenseKey(assetId, licenseId), new byte[]{0});
+    }
+
+    static void delAvailableLicense(Context ctx, String assetId, String licenseId) {
+        ctx.getStub().delPrivateData(ADMINMSP_IPDC, availableLicenseKey(assetId, licenseId));
+    }
+
+    /**
+     * Get the license counters of an asset. Assets created before the counters were introduced do not have counters until
+     * they are repaired with RepairLicenseCount, their licenses are counted instead.
+     */
+    LicenseCount getLicenseCount(Context ctx, String assetId) {
+        byte[] bytes = ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseCountKey(assetId));
+        if (bytes.length == 0) {
+            return countLicenses(ctx, assetId);
+        }
+
+        return LicenseCount.fromByteArray(bytes);
+    }
 
+    // count the licenses of an asset with a scan of the license headers
+    LicenseCount countLicenses(Context ctx, String assetId) {
+        try(QueryResultsIterator<KeyValue> licenseRange = getAssetQueryIterator(ctx, LICENSE_KEY, assetId)) {
+            LicenseCount count = new LicenseCount();
             for (KeyValue next : licenseRange) {
-                byte[] nextLicenseBytes = next.getValue();
-                License license = License.fromByteArray(nextLicenseBytes);
-                if (license.getAllocated() == null) {
-                    licenses.add(license);
+                if (ModelCodec.isAllocatedLicense(next.getValue())) {
+                    count.add(0, 1);
+                } else {
+                    count.add(1, 0);
                 }
             }
 
-            return licenses;
+            return count;
         } catch (Exception e) {
             throw new ChaincodeException(e);
         }
     }
 
-    QueryResultsIterator<KeyValue> getAssetQueryIterator(Context ctx, String key) {
-        return ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, key, key + "~");
+    /**
+     * Add to the license counters of an asset in the same transaction that changes its licenses. Assets without counters
+     * are left without until they are repaired, so a missing counter is never mistaken for zero.
+     */
+    static void updateLicenseCount(Context ctx, String assetId, int available, int allocated) {
+        String key = licenseCountKey(assetId);
+        byte[] bytes = ctx.getStub().getPrivateData(ADMINMSP_IPDC, key);
+        if (bytes.length == 0) {
+            return;
+        }
+
+        LicenseCount count = LicenseCount.fromByteArray(bytes);
+        count.add(available, allocated);
+        ctx.getStub().putPrivateData(ADMINMSP_IPDC, key, count.toByteArray());
+    }
+
+    // the keys of the given type in the SP IPDC whose leading attributes are exactly the given attributes
+    QueryResultsIterator<KeyValue> getAssetQueryIterator(Context ctx, String objectType, String... attributes) {
+        return ctx.getStub().getPrivateDataByPartialCompositeKey(ADMINMSP_IPDC, objectType, attributes);
     }
 
     Asset getAsset(Context ctx, String assetId) {
@@ -294,19 +466,18 @@ public class AssetContract implements ContractInterface {
     }
 
     private Map<String, Map<String, Set<LicenseWithExpiration>>> getAllocatedLicensesMap(Context ctx, String assetId) {
-        String key = licenseKey(assetId, "");
-        try(QueryResultsIterator<KeyValue> stateByRange = getAssetQueryIterator(ctx, key)) {
+        try(QueryResultsIterator<KeyValue> stateByRange = getAssetQueryIterator(ctx, LICENSE_KEY, assetId)) {
             // account -> order -> licenses
             Map<String, Map<String, Set<LicenseWithExpiration>>> map = new HashMap<>();
 
             for (KeyValue next : stateByRange) {
                 byte[] value = next.getValue();
-
-                License license = License.fromByteArray(value);
-                if (license.getAllocated() == null) {
+                if (!ModelCodec.isAllocatedLicense(value)) {
                     continue;
                 }
 
+                License license = License.fromByteArray(value);
+
                 Map<String, Set<LicenseWithExpiration>> accountLicenses = map.getOrDefault(license.getAllocated().getAccount(), new HashMap<>());
                 Set<LicenseWithExpiration> orderLicenses = accountLicenses.getOrDefault(license.getAllocated().getOrderId(), new HashSet<>());
                 orderLicenses.add(new LicenseWithExpiration(license.getId(), license.getAllocated().getExpiration()));
@@ -0,0 +1,174 @@
+package contract;
+
+import contract.request.AccountRequest;
+import contract.request.LicensesRequest;
+import contract.request.MigrateKeysRequest;
+import model.*;
+import ngac.DecisionContext;
+import ngac.PDP;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.contract.ContractInterface;
+import org.hyperledger.fabric.contract.annotation.Contract;
+import org.hyperledger.fabric.contract.annotation.Info;
+import org.hyperledger.fabric.contract.annotation.Transaction;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static contract.AssetContract.*;
+import static contract.OrderContract.orderKey;
+import static contract.SWIDContract.swidKey;
+import static contract.request.LicensesRequest.allocateRequestKey;
+import static model.LicenseKey.allocatedLicenseKey;
+import static model.LicenseKey.licenseKey;
+import static ngac.PolicyBuilder.ADMINMSP;
+
+@Contract(
+        name = "migration",
+        info = @Info(
+                title = "Blossom asset chaincode migration contract",
+                description = "Chaincode functions to migrate private data keys to the current key format",
+                version = "0.0.1"
+        )
+)
+public class MigrationContract implements ContractInterface {
+
+    /**
+     * The current key format. Version 1 keys are simple keys that concatenate a prefix and the ids, version 2 keys are
+     * composite keys with one attribute per id.
+     */
+    public static final int KEY_VERSION = 2;
+
+    // the prefixes of the version 1 keys, each id is recovered from the key or the value when the key is migrated
+    static final String ASSET_PREFIX = "asset:";
+    static final String LICENSE_COUNT_PREFIX = "count:";
+    static final String LICENSE_PREFIX = "license:";
+    static final String AVAILABLE_PREFIX = "avail:";
+    static final String ORDER_PREFIX = "order:";
+    static final String ALLOCATED_PREFIX = "allocated:";
+    static final String SWID_PREFIX = "swid:";
+    static final String ALLOCATE_PREFIX = LicensesRequest.ACTION.ALLOCATE + ":";
+    static final String DEALLOCATE_PREFIX = LicensesRequest.ACTION.DEALLOCATE + ":";
+
+    static final String[] PREFIXES = {
+            ASSET_PREFIX, LICENSE_COUNT_PREFIX, LICENSE_PREFIX, AVAILABLE_PREFIX, ORDER_PREFIX,
+            ALLOCATED_PREFIX, SWID_PREFIX, ALLOCATE_PREFIX, DEALLOCATE_PREFIX
+    };
+
+    @Override
+    public Context createContext(ChaincodeStub stub) {
+        return new DecisionContext(stub);
+    }
+
+    /**
+     * Step 1 in migrating the keys of an account's IPDC, the SP IPDC if the account is the ADMINMSP. Return the keys that
+     * are not in the current key format.
+     */
+    @Transaction
+    public String[] GetKeysToMigrate(Context ctx) {
+        AccountRequest req = new AccountRequest(ctx);
+
+        checkCanMigrate(ctx, req.getAccount());
+
+        String collection = accountIPDC(req.getAccount());
+        List<String> keys = new ArrayList<>();
+        for (String prefix : PREFIXES) {
+            // the end key is the prefix with its ':' incremented, the range is exactly the keys with the prefix
+            String endKey = prefix.substring(0, prefix.length() - 1) + ";";
+            try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(collection, prefix, endKey)) {
+                for (KeyValue next : stateByRange) {
+                    keys.add(next.getKey());
+                }
+            } catch (Exception e) {
+                throw new ChaincodeException(e);
+            }
+        }
+
+        return keys.toArray(String[]::new);
+    }
+
+    /**
+     * Step 2 in migrating the keys of an account's IPDC. Take the return value of step 1 (GetKeysToMigrate), in one or
+     * more batches, and move each value to its key in the given key format. Licenses are moved with their available
+     * license index key, the version 1 index keys are only deleted.
+     */
+    @Transaction
+    public void MigrateKeys(Context ctx) {
+        MigrateKeysRequest req = new MigrateKeysRequest(ctx);
+
+        if (req.getVersion() != KEY_VERSION) {
+            throw new ChaincodeException("cannot migrate keys to version " + req.getVersion() +
+                                                 ", the current key version is " + KEY_VERSION);
+        }
+
+        checkCanMigrate(ctx, req.getAccount());
+
+        // the values are read by key, a range query cannot be used in a transaction that writes private data
+        String collection = accountIPDC(req.getAccount());
+        for (String key : req.getKeys()) {
+            byte[] bytes = ctx.getStub().getPrivateData(collection, key);
+            if (bytes.length == 0) {
+                continue;
+            }
+
+            String migratedKey = migrateKey(ctx, collection, key, bytes);
+            if (migratedKey != null) {
+                ctx.getStub().putPrivateData(collection, migratedKey, bytes);
+            }
+
+            ctx.getStub().delPrivateData(collection, key);
+        }
+    }
+
+    private void checkCanMigrate(Context ctx, String account) {
+        if (account.equals(ADMINMSP)) {
+            PDP.canWriteAsset(ctx);
+        } else {
+            PDP.canWriteSWID(ctx, account);
+        }
+    }
+
+    // get the current key of a version 1 key, or null if the key is only deleted
+    private String migrateKey(Context ctx, String collection, String key, byte[] bytes) {
+        if (key.startsWith(ASSET_PREFIX)) {
+            return assetKey(key.substring(ASSET_PREFIX.length()));
+        } else if (key.startsWith(LICENSE_COUNT_PREFIX)) {
+            return licenseCountKey(key.substring(LICENSE_COUNT_PREFIX.length()));
+        } else if (key.startsWith(LICENSE_PREFIX)) {
+            // the asset id is the key between the prefix and the license id
+            License license = License.fromByteArray(bytes);
+            if (!key.endsWith(license.getId())) {
+                throw new ChaincodeException("license key " + key + " does not end with license id " + license.getId());
+            }
+
+            String assetId = key.substring(LICENSE_PREFIX.length(), key.length() - license.getId().length());
+            ctx.getStub().delPrivateData(collection, AVAILABLE_PREFIX + assetId + ":" + license.getId());
+            if (license.getAllocated() == null) {
+                putAvailableLicense(ctx, assetId, license.getId());
+            }
+
+            return licenseKey(assetId, license.getId());
+        } else if (key.startsWith(AVAILABLE_PREFIX)) {
+            return null;
+        } else if (key.startsWith(ORDER_PREFIX)) {
+            Order order = Order.fromByteArray(bytes);
+            return orderKey(order.getAccount(), order.getId());
+        } else if (key.startsWith(ALLOCATED_PREFIX)) {
+            Allocated allocated = Allocated.fromByteArray(bytes);
+            return allocatedLicenseKey(allocated.getOrderId(), allocated.getLicenseId());
+        } else if (key.startsWith(SWID_PREFIX)) {
+            SWID swid = SWID.fromByteArray(bytes);
+            return swidKey(swid.getOrderId(), swid.getLicenseId());
+        } else if (key.startsWith(ALLOCATE_PREFIX)) {
+            return allocateRequestKey(LicensesRequest.ACTION.ALLOCATE, key.substring(ALLOCATE_PREFIX.length()));
+        } else if (key.startsWith(DEALLOCATE_PREFIX)) {
+            return allocateRequestKey(LicensesRequest.ACTION.DEALLOCATE, key.substring(DEALLOCATE_PREFIX.length()));
+        }
+
+        throw new ChaincodeException("key " + key + " is not a version 1 key");
+    }
+}
@@ -1,5 +1,7 @@
 package contract;
 
+import contract.response.PhaseMetricsResponse;
+import ngac.DecisionMetrics;
 import ngac.PDP;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -36,4 +38,14 @@ public class NGACContract implements ContractInterface {
 		return PDP.getAllPrivileges();
 	}
 
+	/**
+	 * Get the latency metrics of the phases of authorization decisions made by this chaincode process since it started.
+	 * The metrics are local to the peer that evaluates the transaction.
+	 * @return The metrics for each decision phase.
+	 */
+	@Transaction(intent = Transaction.TYPE.EVALUATE)
+	public PhaseMetricsResponse[] GetDecisionMetrics(Context ctx) {
+		return DecisionMetrics.snapshot();
+	}
+
 }
@@ -4,14 +4,16 @@ import contract.request.*;
 import contract.response.AllocateLicensesResponse;
 import contract.response.IdResponse;
 import model.*;
+import ngac.DecisionContext;
 import ngac.PDP;
-import ngac.UnauthorizedException;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
 import org.hyperledger.fabric.contract.annotation.Contract;
 import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
 
@@ -24,10 +26,12 @@ import static contract.SWIDContract.swidKey;
 import static java.time.ZoneOffset.UTC;
 import static contract.request.LicensesRequest.allocateRequestKey;
 import static model.DateFormatter.DATE_TIME_FORMATTER;
-import static model.DateFormatter.isExpired;
+import static model.DateFormatter.SORTABLE_DATE_TIME_FORMATTER;
+import static model.DateFormatter.toSortable;
 import static model.LicenseKey.*;
 import static model.Order.Status.*;
 import static model.SHA256.EMPTY_HASH_BYTES;
+import static ngac.PolicyBuilder.READ_ORDER;
 
 @Contract(
         name = "order",
@@ -39,10 +43,29 @@ import static model.SHA256.EMPTY_HASH_BYTES;
 )
 public class OrderContract implements ContractInterface {
 
-    public static String ORDER_PREFIX = "order:";
+    public static final String ORDER_KEY = "order";
+    public static final String ORDER_BY_ASSET = "orderByAsset";
+    public static final String EXPIRATION_PREFIX = "exp:";
 
     public static String orderKey(String account, String orderId) {
-        return ORDER_PREFIX + account + orderId;
+        return new CompositeKey(ORDER_KEY, account, orderId).toString();
+    }
+
+    // index key of an order under its asset and account, the orders of an asset or of an account for an asset are read
+    // with a partial composite key query
+    public static String orderByAssetKey(String assetId, String account, String orderId) {
+        return new CompositeKey(ORDER_BY_ASSET, assetId, account, orderId).toString();
+    }
+
+    // index key of an allocated order under its expiration, keys sort by expiration so the expired orders are a range.
+    // this is a simple key, a partial composite key query can only select a prefix not a range
+    public static String expirationKey(String expiration, String account, String orderId) {
+        return EXPIRATION_PREFIX + toSortable(expiration) + ":" + account + ":" + orderId;
+    }
+
+    @Override
+    public Context createContext(ChaincodeStub stub) {
+        return new DecisionContext(stub);
     }
 
     @Transaction
@@ -85,6 +108,15 @@ public class OrderContract implements ContractInterface {
         String key = orderKey(order.getAccount(), order.getId());
         ctx.getStub().putPrivateData(ADMINMSP_IPDC, key, order.toByteArray());
 
+        // index new orders under their asset, the value is unused but cannot be empty
+        if (req.getOrderId() == null) {
+            ctx.getStub().putPrivateData(
+                    ADMINMSP_IPDC,
+                    orderByAssetKey(order.getAssetId(), order.getAccount(), order.getId()),
+                    new byte[]{0}
+            );
+        }
+
         return new IdResponse(orderId);
     }
 
@@ -198,16 +230,12 @@ public class OrderContract implements ContractInterface {
             throw new ChaincodeException("cannot get licenses to allocate for an order that has not been approved");
         }
 
-        List<License> availableLicenses = new AssetContract().getAvailableLicenses(ctx, order.getAssetId());
-        if (availableLicenses.size() < order.getAmount()) {
+        // only the first amount available licenses are read from the index
+        List<String> licensesToAllocate = new AssetContract().getAvailableLicenseIds(ctx, order.getAssetId(), order.getAmount());
+        if (licensesToAllocate.size() < order.getAmount()) {
             throw new ChaincodeException("not enough available licenses to complete order " + order.getId());
         }
 
-        List<String> licensesToAllocate = new ArrayList<>();
-        for (int i = 0; i < order.getAmount(); i++) {
-            licensesToAllocate.add(availableLicenses.get(i).getId());
-        }
-
         return new AllocateLicensesResponse(req.getOrderId(), req.getAccount(), licensesToAllocate);
     }
 
@@ -230,10 +258,13 @@ public class OrderContract implements ContractInterface {
         String expiration;
         int duration = order.getDuration();
         if (order.getExpiration() != null) {
-            expiration = DateFormatter.toInstant(order.getExpiration())
-                                 .atZone(ZoneId.from(UTC))
-                                 .plusYears(duration)
-                                 .toInstant().toString();
+            expiration = DATE_TIME_FORMATTER.format(DateFormatter.toInstant(order.getExpiration())
+                                                                 .atZone(ZoneId.from(UTC))
+                                                                 .plusYears(duration)
+                                                                 .toInstant());
+
+            // move the order in the expiration index
+            ctx.getStub().delPrivateData(ADMINMSP_IPDC, expirationKey(order.getExpiration(), order.getAccount(), order.getId()));
         } else {
             expiration = DATE_TIME_FORMATTER.format(ctx.getStub()
                                                        .getTxTimestamp()
@@ -265,6 +296,11 @@ public class OrderContract implements ContractInterface {
                 orderKey(order.getAccount(), order.getId()),
                 order.toByteArray()
         );
+        ctx.getStub().putPrivateData(
+                ADMINMSP_IPDC,
+                expirationKey(order.getExpiration(), order.getAccount(), order.getId()),
+                new byte[]{0}
+        );
 
         // create allocate request in ADMINMSP
         LicensesRequest licensesRequest = new LicensesRequest(order.getAccount(), order.getAssetId(), order.getId(), order.getExpiration(), order.getLicenses());
@@ -296,8 +332,7 @@ public class OrderContract implements ContractInterface {
 
         // check hash vs private data on adminmsp ipdc to verify the licenses being sent were the ones allocated
         byte[] pvtDataHash = ctx.getStub().getPrivateDataHash(ADMINMSP_IPDC, allocateRequestKey(LicensesRequest.ACTION.ALLOCATE, req.getOrderId()));
-        byte[] hash = SHA256.hashBytesToBytes(req.toByteArray());
-        if (!Arrays.equals(pvtDataHash, hash)) {
+        if (!req.matchesHash(pvtDataHash)) {
             throw new ChaincodeException("provided licenses to send do not match the licenses allocated");
         }
 
@@ -319,6 +354,11 @@ public class OrderContract implements ContractInterface {
 
         PDP.canReturnLicense(ctx, req.getAccount());
 
+        // check that there are no duplicate licenses, a license returned twice would be deallocated twice
+        if (new HashSet<>(req.getLicenses()).size() != req.getLicenses().size()) {
+            throw new ChaincodeException("duplicate licenses are not allowed");
+        }
+
         // check that a request for this order is not already active
         String key = allocateRequestKey(LicensesRequest.ACTION.DEALLOCATE, req.getOrderId());
         byte[] hash = ctx.getStub().getPrivateDataHash(ADMINMSP_IPDC, key);
@@ -363,8 +403,7 @@ public class OrderContract implements ContractInterface {
         // check deallocate request exists and equals the one provided
         String key = allocateRequestKey(LicensesRequest.ACTION.DEALLOCATE, req.getOrderId());
         byte[] requestHash = ctx.getStub().getPrivateDataHash(ADMINMSP_IPDC, key);
-        byte[] paramsHash = SHA256.hashBytesToBytes(req.toByteArray());
-        if (!Arrays.equals(requestHash, paramsHash)) {
+        if (!req.matchesHash(requestHash)) {
             throw new ChaincodeException("provided deallocation request does not match the one initiated");
         }
 
@@ -395,26 +434,36 @@ public class OrderContract implements ContractInterface {
 
         LicensesRequest licensesRequest = LicensesRequest.fromByteArray(bytes);
 
+        // a request initiated before duplicates were rejected can repeat a license, each license is only returned once
+        Set<String> licenses = new LinkedHashSet<>(licensesRequest.getLicenses());
+
         // update each license to remove allocated and track on ledger
-        for (String licenseId : licensesRequest.getLicenses()) {
+        int deallocated = 0;
+        for (String licenseId : licenses) {
             bytes = ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseKey(order.getAssetId(), licenseId));
             if (bytes.length == 0) {
                 throw new ChaincodeException("license " + licenseId + " does not exist");
             }
 
             License license = License.fromByteArray(bytes);
+            if (license.getAllocated() != null) {
+                deallocated++;
+            }
             license.setAllocated(null);
 
             // write to ADMINMSP
             ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseKey(order.getAssetId(), licenseId), license.toByteArray());
+            putAvailableLicense(ctx, order.getAssetId(), licenseId);
 
             // write to ledger to track tx
             ctx.getStub().putState(hashedLicenseKey(order.getAssetId(), licenseId, license.getSalt()), new byte[]{0});
         }
 
+        updateLicenseCount(ctx, order.getAssetId(), deallocated, -deallocated);
+
         // update the order
-        order.getLicenses().removeAll(licensesRequest.getLicenses());
-        order.setAmount(order.getAmount() - licensesRequest.getLicenses().size());
+        order.getLicenses().removeAll(licenses);
+        order.setAmount(order.getAmount() - licenses.size());
         ctx.getStub().putPrivateData(
                 ADMINMSP_IPDC,
                 orderKey(order.getAccount(), order.getId()),
@@ -440,8 +489,7 @@ public class OrderContract implements ContractInterface {
 
         PDP.canReadOrder(ctx, req.getAccount());
 
-        String key = orderKey(req.getAccount(), "");
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, key, key + "~")) {
+        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByPartialCompositeKey(ADMINMSP_IPDC, ORDER_KEY, req.getAccount())) {
             List<Order> orders = new ArrayList<>();
 
             for (KeyValue next : stateByRange) {
@@ -463,52 +511,46 @@ public class OrderContract implements ContractInterface {
 
         PDP.canReadOrder(ctx, req.getAccount());
 
-        String key = orderKey(req.getAccount(), "");
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, key, key + "~")) {
-            List<Order> orders = new ArrayList<>();
-
-            for (KeyValue next : stateByRange) {
-                byte[] value = next.getValue();
-
-                Order order = Order.fromByteArray(value);
-                if (!order.getAssetId().equals(req.getAssetId())) {
-                    continue;
-                }
-
-                orders.add(order);
-            }
-
-            return orders.toArray(Order[]::new);
-        } catch (Exception e) {
-            throw new ChaincodeException(e);
+        List<Order> orders = new ArrayList<>();
+        for (String orderId : getOrderIdsByAsset(ctx, req.getAssetId(), req.getAccount()).getOrDefault(req.getAccount(), List.of())) {
+            orders.add(getOrder(ctx, orderId, req.getAccount()));
         }
+
+        return orders.toArray(Order[]::new);
     }
 
     @Transaction
     public Order[] GetOrdersByAsset(Context ctx) {
         AssetIdRequest req = new AssetIdRequest(ctx);
 
-        String key = ORDER_PREFIX;
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, key, key + "~")) {
-            List<Order> orders = new ArrayList<>();
+        // ngac check on order accounts, only the orders of authorized accounts are read
+        return readPermittedOrders(ctx, getOrderIdsByAsset(ctx, req.getAssetId()));
+    }
 
-            for (KeyValue next : stateByRange) {
-                byte[] value = next.getValue();
+    @Transaction
+    public Order[] GetOrderIndexRepairs(Context ctx) {
+        PDP.canAllocateLicense(ctx);
 
-                Order order = Order.fromByteArray(value);
-                if (!order.getAssetId().equals(req.getAssetId())) {
-                    continue;
-                }
+        try(QueryResultsIterator<KeyValue> indexRange = ctx.getStub().getPrivateDataByPartialCompositeKey(ADMINMSP_IPDC, new CompositeKey(ORDER_BY_ASSET));
+            QueryResultsIterator<KeyValue> expirationRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, EXPIRATION_PREFIX, EXPIRATION_PREFIX + "~");
+            QueryResultsIterator<KeyValue> orderRange = ctx.getStub().getPrivateDataByPartialCompositeKey(ADMINMSP_IPDC, new CompositeKey(ORDER_KEY))) {
+            Set<String> indexed = new HashSet<>();
+            for (KeyValue next : indexRange) {
+                indexed.add(next.getKey());
+            }
+            for (KeyValue next : expirationRange) {
+                indexed.add(next.getKey());
+            }
 
-                // ngac check on order account
-                try {
-                    PDP.canReadOrder(ctx, order.getAccount());
-                } catch (UnauthorizedException e) {
-                    // if unauthorized do not add to the return set
-                    continue;
+            // orders created or allocated before the indexes were introduced
+            List<Order> orders = new ArrayList<>();
+            for (KeyValue next : orderRange) {
+                Order order = Order.fromByteArray(next.getValue());
+                if (!indexed.contains(orderByAssetKey(order.getAssetId(), order.getAccount(), order.getId()))
+                        || (order.getExpiration() != null
+                        && !indexed.contains(expirationKey(order.getExpiration(), order.getAccount(), order.getId())))) {
+                    orders.add(order);
                 }
-
-                orders.add(order);
             }
 
             return orders.toArray(Order[]::new);
@@ -517,6 +559,31 @@ public class OrderContract implements ContractInterface {
         }
     }
 
+    @Transaction
+    public void RepairOrderIndex(Context ctx) {
+        OrdersRequest req = new OrdersRequest(ctx);
+
+        PDP.canAllocateLicense(ctx);
+
+        // the orders are read by key, a range query cannot be used in a transaction that writes private data
+        for (OrderIdAndAccountRequest orderIdAndAccount : req.getOrders()) {
+            Order order = getOrder(ctx, orderIdAndAccount.getOrderId(), orderIdAndAccount.getAccount());
+            ctx.getStub().putPrivateData(
+                    ADMINMSP_IPDC,
+                    orderByAssetKey(order.getAssetId(), order.getAccount(), order.getId()),
+                    new byte[]{0}
+            );
+
+            if (order.getExpiration() != null) {
+                ctx.getStub().putPrivateData(
+                        ADMINMSP_IPDC,
+                        expirationKey(order.getExpiration(), order.getAccount(), order.getId()),
+                        new byte[]{0}
+                );
+            }
+        }
+    }
+
     @Transaction
     public String[] GetAvailableLicensesForOrder(Context ctx) {
         OrderIdAndAccountRequest req = new OrderIdAndAccountRequest(ctx);
@@ -525,8 +592,7 @@ public class OrderContract implements ContractInterface {
 
         // get the licenses allocated to the account that do not also have a swid key associated with it
         String collection = accountIPDC(req.getAccount());
-        String key = allocatedLicenseKey(req.getOrderId(), "");
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(collection, key, key + "~")) {
+        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByPartialCompositeKey(collection, ALLOCATED_KEY, req.getOrderId())) {
             List<String> licenses = new ArrayList<>();
             for (KeyValue next : stateByRange) {
                 Allocated allocated = Allocated.fromByteArray(next.getValue());
@@ -549,30 +615,55 @@ public class OrderContract implements ContractInterface {
     public Order[] GetExpiredOrders(Context ctx) {
         Instant txTs = ctx.getStub().getTxTimestamp();
 
-        String key = ORDER_PREFIX;
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, key, key + "~")) {
-            List<Order> orders = new ArrayList<>();
-
+        // an order is expired if its expiration is before the tx timestamp, expirations have second precision so the
+        // range ends after the last second before the tx timestamp (';' sorts after the ':' following the timestamp)
+        String endKey = EXPIRATION_PREFIX + SORTABLE_DATE_TIME_FORMATTER.format(txTs.minusNanos(1)) + ";";
+        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(ADMINMSP_IPDC, EXPIRATION_PREFIX, endKey)) {
+            Map<String, List<String>> orderIds = new LinkedHashMap<>();
             for (KeyValue next : stateByRange) {
-                byte[] value = next.getValue();
+                // exp:<timestamp>:<account>:<orderId>
+                String key = next.getKey();
+                int accountStart = key.indexOf(':', EXPIRATION_PREFIX.length()) + 1;
+                int orderIdStart = key.lastIndexOf(':');
+                String account = key.substring(accountStart, orderIdStart);
+                orderIds.computeIfAbsent(account, k -> new ArrayList<>()).add(key.substring(orderIdStart + 1));
+            }
 
-                Order order = Order.fromByteArray(value);
+            // skip orders that the cid does not have access to
+            return readPermittedOrders(ctx, orderIds);
+        } catch (Exception e) {
+            throw new ChaincodeException(e);
+        }
+    }
 
-                // skip orders that are not expired or that the cid does not have access to
-                if (!isExpired(txTs, order.getExpiration())) {
-                    continue;
-                }
+    // read the given orders of each account, skipping the accounts the cid cannot read orders for
+    private Order[] readPermittedOrders(Context ctx, Map<String, List<String>> orderIds) {
+        Set<String> permitted = PDP.filterAccounts(ctx, orderIds.keySet(), READ_ORDER);
 
-                try {
-                    PDP.canReadOrder(ctx, order.getAccount());
-                } catch (UnauthorizedException e) {
-                    continue;
-                }
+        List<Order> orders = new ArrayList<>();
+        for (Map.Entry<String, List<String>> e : orderIds.entrySet()) {
+            if (!permitted.contains(e.getKey())) {
+                continue;
+            }
 
-                orders.add(order);
+            for (String orderId : e.getValue()) {
+                orders.add(getOrder(ctx, orderId, e.getKey()));
             }
+        }
 
-            return orders.toArray(Order[]::new);
+        return orders.toArray(Order[]::new);
+    }
+
+    // get the ids of the orders in the order by asset index matching the given asset and optional account, by account
+    private Map<String, List<String>> getOrderIdsByAsset(Context ctx, String... assetIdAndAccount) {
+        try(QueryResultsIterator<KeyValue> indexRange = ctx.getStub().getPrivateDataByPartialCompositeKey(ADMINMSP_IPDC, ORDER_BY_ASSET, assetIdAndAccount)) {
+            Map<String, List<String>> orderIds = new LinkedHashMap<>();
+            for (KeyValue next : indexRange) {
+                List<String> attributes = CompositeKey.parseCompositeKey(next.getKey()).getAttributes();
+                orderIds.computeIfAbsent(attributes.get(1), k -> new ArrayList<>()).add(attributes.get(2));
+            }
+
+            return orderIds;
         } catch (Exception e) {
             throw new ChaincodeException(e);
         }
@@ -634,9 +725,12 @@ public class OrderContract implements ContractInterface {
 
             // write license update to ADMINMSP
             ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseKey(order.getAssetId(), licenseId), license.toByteArray());
+            delAvailableLicense(ctx, order.getAssetId(), licenseId);
 
             // write license update to ledger
             ctx.getStub().putState(hashedLicenseKey(order.getAssetId(), licenseId, license.getSalt()), new byte[]{0});
         }
+
+        updateLicenseCount(ctx, order.getAssetId(), -licenses.size(), licenses.size());
     }
 }
@@ -5,6 +5,7 @@ import contract.request.SWIDRequest;
 import contract.request.ReportSWIDRequest;
 import model.Allocated;
 import model.SWID;
+import ngac.DecisionContext;
 import ngac.PDP;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -12,6 +13,8 @@ import org.hyperledger.fabric.contract.annotation.Contract;
 import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
 
@@ -20,6 +23,7 @@ import java.util.List;
 
 import static contract.AssetContract.*;
 import static model.LicenseKey.allocatedLicenseKey;
+import static model.LicenseKey.licenseIdFromKey;
 
 @Contract(
         name = "swid",
@@ -31,13 +35,14 @@ import static model.LicenseKey.allocatedLicenseKey;
 )
 public class SWIDContract implements ContractInterface {
 
-    public static final String SWID_PREFIX = "swid:";
+    public static final String SWID_KEY = "swid";
     public static String swidKey(String orderId, String licenseId) {
-        return SWID_PREFIX + orderId + ":" + licenseId;
+        return new CompositeKey(SWID_KEY, orderId, licenseId).toString();
     }
 
-    public static String getLicenseIdFromKey(String key) {
-        return key.split(":")[2];
+    @Override
+    public Context createContext(ChaincodeStub stub) {
+        return new DecisionContext(stub);
     }
 
     @Transaction
@@ -109,13 +114,10 @@ public class SWIDContract implements ContractInterface {
         PDP.canReadLicense(ctx, req.getAccount());
 
         String collection = accountIPDC(req.getAccount());
-        String key = swidKey(req.getOrderId(), "");
-        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByRange(collection, key, key + "~")) {
+        try(QueryResultsIterator<KeyValue> stateByRange = ctx.getStub().getPrivateDataByPartialCompositeKey(collection, SWID_KEY, req.getOrderId())) {
             List<String> licenseIds = new ArrayList<>();
             for (KeyValue next : stateByRange) {
-                String k = next.getKey();
-                String id = getLicenseIdFromKey(k);
-                licenseIds.add(id);
+                licenseIds.add(licenseIdFromKey(next.getKey()));
             }
 
             return licenseIds.toArray(String[]::new);
@@ -1,23 +1,32 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class AccountRequest {
 
     private String account;
 
-    public AccountRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AccountRequest.class));
+    public AccountRequest(String account) {
+        this.account = account;
     }
 
-    private AccountRequest(AccountRequest req) {
-        this.account = Objects.requireNonNull(req.account, "account cannot be null");
+    public AccountRequest(Context ctx) {
+        String account = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.account = Objects.requireNonNull(account, "account cannot be null");
     }
 
     public String getAccount() {
@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class AddAssetRequest {
@@ -19,15 +17,30 @@ public class AddAssetRequest {
     }
 
     public AddAssetRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AddAssetRequest.class));
-    }
-
-    private AddAssetRequest(AddAssetRequest req) {
-        this.name = Objects.requireNonNull(req.name, "name cannot be null");
-        this.endDate = Objects.requireNonNull(req.endDate, "endDate cannot be null");
-        this.licenses = Objects.requireNonNull(req.licenses, "licenses cannot be null");
+        String name = null;
+        String endDate = null;
+        Set<LicenseIdWithSaltRequest> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        name = reader.nextString();
+                        break;
+                    case "endDate":
+                        endDate = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextArray(new LinkedHashSet<>(), LicenseIdWithSaltRequest::read);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        this.endDate = Objects.requireNonNull(endDate, "endDate cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
     }
 
     public String getName() {
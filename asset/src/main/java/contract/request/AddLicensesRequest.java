@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class AddLicensesRequest {
@@ -17,14 +15,25 @@ public class AddLicensesRequest {
     }
 
     public AddLicensesRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AddLicensesRequest.class));
-    }
-
-    private AddLicensesRequest(AddLicensesRequest req) {
-        this.assetId = Objects.requireNonNull(req.assetId, "assetId cannot be null");
-        this.licenses = Objects.requireNonNull(req.licenses, "licenses cannot be null");
+        String assetId = null;
+        Set<LicenseIdWithSaltRequest> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextArray(new LinkedHashSet<>(), LicenseIdWithSaltRequest::read);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
     }
 
     public String getAssetId() {
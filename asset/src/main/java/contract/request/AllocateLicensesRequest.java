@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class AllocateLicensesRequest {
@@ -19,15 +17,30 @@ public class AllocateLicensesRequest {
     }
 
     public AllocateLicensesRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AllocateLicensesRequest.class));
-    }
-
-    private AllocateLicensesRequest(AllocateLicensesRequest req) {
-        this.orderId = Objects.requireNonNull(req.orderId, "orderId cannot be null");
-        this.account = Objects.requireNonNull(req.account, "account cannot be null");
-        this.licenses = Objects.requireNonNull(req.licenses, "licenses cannot be null");
+        String orderId = null;
+        String account = null;
+        List<String> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextStringList();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
     }
 
     public String getOrderId() {
@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class AssetIdAndAccountRequest {
@@ -11,15 +9,31 @@ public class AssetIdAndAccountRequest {
     private final String assetId;
     private final String account;
 
-    public AssetIdAndAccountRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AssetIdAndAccountRequest.class));
+    public AssetIdAndAccountRequest(String assetId, String account) {
+        this.assetId = assetId;
+        this.account = account;
     }
 
-    private AssetIdAndAccountRequest(AssetIdAndAccountRequest req) {
-        this.assetId = Objects.requireNonNull(req.assetId, "assetId cannot be null");
-        this.account = Objects.requireNonNull(req.account, "account cannot be null");
+    public AssetIdAndAccountRequest(Context ctx) {
+        String assetId = null;
+        String account = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
     }
 
     public String getAssetId() {
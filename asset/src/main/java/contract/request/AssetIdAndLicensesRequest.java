@@ -0,0 +1,46 @@
+package contract.request;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.*;
+
+public class AssetIdAndLicensesRequest {
+
+    private final String assetId;
+    private final Set<String> licenses;
+
+    public AssetIdAndLicensesRequest(String assetId, Set<String> licenses) {
+        this.assetId = assetId;
+        this.licenses = licenses;
+    }
+
+    public AssetIdAndLicensesRequest(Context ctx) {
+        String assetId = null;
+        Set<String> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextStringSet();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
+    }
+
+    public String getAssetId() {
+        return assetId;
+    }
+
+    public Set<String> getLicenses() {
+        return licenses;
+    }
+}
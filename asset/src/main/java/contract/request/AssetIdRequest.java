@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class AssetIdRequest {
@@ -15,13 +13,20 @@ public class AssetIdRequest {
     }
 
     public AssetIdRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                AssetIdRequest.class));
-    }
-
-    private AssetIdRequest(AssetIdRequest req) {
-        this.assetId = Objects.requireNonNull(req.assetId, "assetId cannot be null");
+        String assetId = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
     }
 
     public String getAssetId() {
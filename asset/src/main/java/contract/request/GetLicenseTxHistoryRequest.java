@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class GetLicenseTxHistoryRequest {
@@ -17,14 +15,25 @@ public class GetLicenseTxHistoryRequest {
     }
 
     public GetLicenseTxHistoryRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                GetLicenseTxHistoryRequest.class));
-    }
-
-    private GetLicenseTxHistoryRequest(GetLicenseTxHistoryRequest req) {
-        this.assetId = Objects.requireNonNull(req.assetId, "assetId cannot be null");
-        this.licenseId = Objects.requireNonNull(req.licenseId, "licenseId cannot be null");
+        String assetId = null;
+        String licenseId = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "licenseId":
+                        licenseId = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.licenseId = Objects.requireNonNull(licenseId, "licenseId cannot be null");
     }
 
     public String getAssetId() {
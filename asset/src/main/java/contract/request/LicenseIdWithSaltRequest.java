@@ -10,6 +10,27 @@ public class LicenseIdWithSaltRequest {
         this.salt = salt;
     }
 
+    static LicenseIdWithSaltRequest read(RequestReader reader) {
+        String id = null;
+        String salt = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "salt":
+                    salt = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new LicenseIdWithSaltRequest(id, salt);
+    }
+
     public String getId() {
         return id;
     }
@@ -1,13 +1,15 @@
 package contract.request;
 
-import com.google.gson.Gson;
+import model.ModelCodec;
+import model.SHA256;
 import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.annotation.DataType;
 import org.hyperledger.fabric.contract.annotation.Property;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.Objects;
 
@@ -15,11 +17,11 @@ import java.util.Objects;
 public class LicensesRequest implements Serializable {
 
     public static String allocateRequestKey(ACTION action, String orderId) {
-        return action + ":" + orderId;
+        return new CompositeKey(action.toString(), orderId).toString();
     }
 
     public static LicensesRequest fromByteArray(byte[] bytes) {
-        return SerializationUtils.deserialize(bytes);
+        return ModelCodec.decodeLicensesRequest(bytes);
     }
 
     @Property
@@ -42,17 +44,40 @@ public class LicensesRequest implements Serializable {
     }
 
     public LicensesRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                LicensesRequest.class));
-    }
+        String account = null;
+        String assetId = null;
+        String orderId = null;
+        String expiration = null;
+        List<String> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "expiration":
+                        expiration = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextStringList();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
 
-    private LicensesRequest(LicensesRequest req) {
-        this.account = Objects.requireNonNull(req.getAccount(), "account cannot be null");
-        this.assetId = Objects.requireNonNull(req.getAssetId(), "assetId cannot be null");
-        this.orderId = Objects.requireNonNull(req.getOrderId(), "orderId cannot be null");
-        this.expiration = Objects.requireNonNull(req.getExpiration(), "expiration cannot be null");
-        this.licenses = Objects.requireNonNull(req.getLicenses(), "licenses cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+        this.expiration = Objects.requireNonNull(expiration, "expiration cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
     }
 
     public String getOrderId() {
@@ -96,7 +121,17 @@ public class LicensesRequest implements Serializable {
     }
 
     public byte[] toByteArray() {
-        return SerializationUtils.serialize(this);
+        return ModelCodec.encode(this);
+    }
+
+    /**
+     * Check if the given private data hash is the hash of this request. The hash is computed from the canonical encoding
+     * of the request, in each supported format version, without building the encoded value. Requests stored before the
+     * binary format was introduced are matched against the hash of their Java serialization.
+     */
+    public boolean matchesHash(byte[] hash) {
+        return ModelCodec.matchesHash(this, hash)
+                || MessageDigest.isEqual(hash, SHA256.hashBytesToBytes(SerializationUtils.serialize(this)));
     }
 
     @Override
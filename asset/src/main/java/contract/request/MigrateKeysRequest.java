@@ -0,0 +1,58 @@
+package contract.request;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.List;
+import java.util.Objects;
+
+public class MigrateKeysRequest {
+
+    private final String account;
+    private final int version;
+    private final List<String> keys;
+
+    public MigrateKeysRequest(String account, int version, List<String> keys) {
+        this.account = account;
+        this.version = version;
+        this.keys = keys;
+    }
+
+    public MigrateKeysRequest(Context ctx) {
+        String account = null;
+        int version = 0;
+        List<String> keys = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "version":
+                        version = reader.nextInt();
+                        break;
+                    case "keys":
+                        keys = reader.nextStringList();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.version = version;
+        this.keys = Objects.requireNonNull(keys, "keys cannot be null");
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+}
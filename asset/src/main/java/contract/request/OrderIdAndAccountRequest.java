@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class OrderIdAndAccountRequest {
@@ -17,14 +15,49 @@ public class OrderIdAndAccountRequest {
     }
 
     public OrderIdAndAccountRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                OrderIdAndAccountRequest.class));
+        String orderId = null;
+        String account = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
     }
 
-    private OrderIdAndAccountRequest(OrderIdAndAccountRequest req) {
-        this.orderId = Objects.requireNonNull(req.orderId, "orderId cannot be null");
-        this.account = Objects.requireNonNull(req.account, "account cannot be null");
+    static OrderIdAndAccountRequest read(RequestReader reader) {
+        String orderId = null;
+        String account = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "orderId":
+                    orderId = reader.nextString();
+                    break;
+                case "account":
+                    account = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new OrderIdAndAccountRequest(
+                Objects.requireNonNull(orderId, "orderId cannot be null"),
+                Objects.requireNonNull(account, "account cannot be null")
+        );
     }
 
     public String getOrderId() {
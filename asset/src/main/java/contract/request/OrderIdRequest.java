@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class OrderIdRequest {
@@ -15,13 +13,20 @@ public class OrderIdRequest {
     }
 
     public OrderIdRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                OrderIdRequest.class));
-    }
-
-    private OrderIdRequest(OrderIdRequest req) {
-        this.orderId = Objects.requireNonNull(req.orderId, "orderId cannot be null");
+        String orderId = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
     }
 
     public String getOrderId() {
@@ -0,0 +1,37 @@
+package contract.request;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class OrdersRequest {
+
+    private final List<OrderIdAndAccountRequest> orders;
+
+    public OrdersRequest(List<OrderIdAndAccountRequest> orders) {
+        this.orders = orders;
+    }
+
+    public OrdersRequest(Context ctx) {
+        List<OrderIdAndAccountRequest> orders = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orders":
+                        orders = reader.nextArray(new ArrayList<>(), OrderIdAndAccountRequest::read);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.orders = Objects.requireNonNull(orders, "orders cannot be null");
+    }
+
+    public List<OrderIdAndAccountRequest> getOrders() {
+        return orders;
+    }
+}
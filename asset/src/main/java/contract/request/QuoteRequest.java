@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class QuoteRequest {
@@ -37,30 +35,57 @@ public class QuoteRequest {
     }
 
     public QuoteRequest(Context ctx, boolean isRequest) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                QuoteRequest.class), isRequest);
-    }
+        String orderId = null;
+        String account = null;
+        String assetId = null;
+        int amount = 0;
+        int duration = 0;
+        double price = 0;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "amount":
+                        amount = reader.nextInt();
+                        break;
+                    case "duration":
+                        duration = reader.nextInt();
+                        break;
+                    case "price":
+                        price = reader.nextDouble();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
 
-    private QuoteRequest(QuoteRequest req, boolean isRequest) {
-        this.account = Objects.requireNonNull(req.getAccount(), "account cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
 
         if (isRequest) {
             // a null order id means it is a new order
-            this.orderId = req.getOrderId();
-            this.assetId = Objects.requireNonNull(req.getAssetId(), "assetId cannot be null");
-            this.amount = req.getAmount();
+            this.orderId = orderId;
+            this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+            this.amount = amount;
             if (amount == 0) {
                 throw new IllegalArgumentException("amount cannot be 0");
             }
 
-            this.duration = req.getDuration();
+            this.duration = duration;
             if (duration == 0) {
                 throw new IllegalArgumentException("duration cannot be 0");
             }
         } else {
-            this.orderId = Objects.requireNonNull(req.getOrderId(), "orderId cannot be null");
-            this.price = req.getPrice();
+            this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+            this.price = price;
             if (price == 0) {
                 throw new IllegalArgumentException("price cannot be 0");
             }
@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class ReportSWIDRequest {
@@ -23,17 +21,40 @@ public class ReportSWIDRequest {
     }
 
     public ReportSWIDRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                ReportSWIDRequest.class));
-    }
+        String account = null;
+        String primaryTag = null;
+        String xml = null;
+        String orderId = null;
+        String licenseId = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "primaryTag":
+                        primaryTag = reader.nextString();
+                        break;
+                    case "xml":
+                        xml = reader.nextString();
+                        break;
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "licenseId":
+                        licenseId = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
 
-    private ReportSWIDRequest(ReportSWIDRequest req) {
-        this.account = Objects.requireNonNull(req.getAccount(), "account cannot be null");
-        this.primaryTag = Objects.requireNonNull(req.getPrimaryTag(), "primaryTag cannot be null");
-        this.xml = Objects.requireNonNull(req.getXml(), "xml cannot be null");
-        this.orderId = Objects.requireNonNull(req.getOrderId(), "orderId cannot be null");
-        this.licenseId = Objects.requireNonNull(req.getLicenseId(), "licenseId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.primaryTag = Objects.requireNonNull(primaryTag, "primaryTag cannot be null");
+        this.xml = Objects.requireNonNull(xml, "xml cannot be null");
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+        this.licenseId = Objects.requireNonNull(licenseId, "licenseId cannot be null");
     }
 
     public String getAccount() {
@@ -0,0 +1,205 @@
+package contract.request;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads the JSON object in the "request" transient field of a transaction. The JSON is streamed directly from the
+ * transient bytes, requests read the fields they expect into local variables and validate them as they construct
+ * themselves, so no intermediate copy of the request is created. Unknown fields are skipped.
+ *
+ * <pre>
+ * try (RequestReader reader = RequestReader.of(ctx)) {
+ *     while (reader.hasNext()) {
+ *         switch (reader.nextName()) {
+ *             case "assetId": assetId = reader.nextString(); break;
+ *             default: reader.skipValue();
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * The request must be a single JSON object. Closing the reader reads the end of the object and checks that nothing follows
+ * it, so a truncated request or data after the request is rejected. Errors reading the JSON are thrown as a
+ * ChaincodeException.
+ */
+public class RequestReader implements AutoCloseable {
+
+    public static final String REQUEST_KEY = "request";
+
+    public interface ElementReader<T> {
+        T read(RequestReader reader);
+    }
+
+    private final JsonReader in;
+
+    private RequestReader(byte[] bytes) {
+        this.in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        beginObject();
+    }
+
+    /**
+     * Start reading the request object in the transient field of the given context.
+     *
+     * @throws ChaincodeException If the transient field is missing or does not contain a JSON object.
+     */
+    public static RequestReader of(Context ctx) {
+        byte[] bytes = ctx.getStub().getTransient().get(REQUEST_KEY);
+        if (bytes == null) {
+            throw new ChaincodeException("transient field " + REQUEST_KEY + " is required");
+        }
+
+        return new RequestReader(bytes);
+    }
+
+    public void beginObject() {
+        try {
+            in.beginObject();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    public void endObject() {
+        try {
+            in.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    public boolean hasNext() {
+        try {
+            return in.hasNext();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    public String nextName() {
+        try {
+            return in.nextName();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * @return The next string value, or null if the value is null.
+     */
+    public String nextString() {
+        try {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            return in.nextString();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * @return The next int value, 0 if the value is null.
+     */
+    public int nextInt() {
+        try {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return 0;
+            }
+
+            return in.nextInt();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * @return The next double value, 0 if the value is null.
+     */
+    public double nextDouble() {
+        try {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return 0;
+            }
+
+            return in.nextDouble();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * Read the next array into the given collection using the given element reader.
+     *
+     * @return The collection, or null if the value is null.
+     */
+    public <T, C extends Collection<T>> C nextArray(C collection, ElementReader<T> element) {
+        try {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            in.beginArray();
+            while (in.hasNext()) {
+                collection.add(element.read(this));
+            }
+            in.endArray();
+
+            return collection;
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    public List<String> nextStringList() {
+        return nextArray(new ArrayList<>(), RequestReader::nextString);
+    }
+
+    public Set<String> nextStringSet() {
+        return nextArray(new LinkedHashSet<>(), RequestReader::nextString);
+    }
+
+    public void skipValue() {
+        try {
+            in.skipValue();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    /**
+     * Read the end of the request object and check that it is the end of the input.
+     *
+     * @throws ChaincodeException If the request object has more fields, is not closed, or is followed by more data.
+     */
+    @Override
+    public void close() {
+        try {
+            in.endObject();
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new ChaincodeException("invalid request: unexpected data after the request object");
+            }
+
+            in.close();
+        } catch (IOException | IllegalStateException e) {
+            throw invalid(e);
+        }
+    }
+
+    private static ChaincodeException invalid(Exception e) {
+        return new ChaincodeException("invalid request: " + e.getMessage());
+    }
+}
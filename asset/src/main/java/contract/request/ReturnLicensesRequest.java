@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class ReturnLicensesRequest {
@@ -14,16 +12,35 @@ public class ReturnLicensesRequest {
     private final Set<String> licenses;
 
     public ReturnLicensesRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                ReturnLicensesRequest.class));
-    }
-
-    private ReturnLicensesRequest(ReturnLicensesRequest req) {
-        this.orderId = Objects.requireNonNull(req.getOrderId(), "orderId cannot be null");
-        this.account = Objects.requireNonNull(req.getAccount(), "account cannot be null");
-        this.assetId = Objects.requireNonNull(req.getAssetId(), "assetId cannot be null");
-        this.licenses = Objects.requireNonNull(req.getLicenses(), "licenses cannot be null");
+        String orderId = null;
+        String account = null;
+        String assetId = null;
+        Set<String> licenses = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "licenses":
+                        licenses = reader.nextStringSet();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.licenses = Objects.requireNonNull(licenses, "licenses cannot be null");
     }
 
     public String getOrderId() {
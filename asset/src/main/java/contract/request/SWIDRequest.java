@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class SWIDRequest {
@@ -19,15 +17,30 @@ public class SWIDRequest {
     }
 
     public SWIDRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                SWIDRequest.class));
-    }
-
-    private SWIDRequest(SWIDRequest req) {
-        this.licenseId = Objects.requireNonNull(req.getLicenseId(), "licenseId cannot be null");
-        this.account = Objects.requireNonNull(req.getAccount(), "account cannot be null");
-        this.orderId = Objects.requireNonNull(req.getOrderId(), "orderId cannot be null");
+        String licenseId = null;
+        String account = null;
+        String orderId = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "licenseId":
+                        licenseId = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "orderId":
+                        orderId = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.licenseId = Objects.requireNonNull(licenseId, "licenseId cannot be null");
+        this.account = Objects.requireNonNull(account, "account cannot be null");
+        this.orderId = Objects.requireNonNull(orderId, "orderId cannot be null");
     }
 
     public String getLicenseId() {
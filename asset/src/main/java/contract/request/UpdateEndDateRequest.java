@@ -1,9 +1,7 @@
 package contract.request;
 
-import com.google.gson.Gson;
 import org.hyperledger.fabric.contract.Context;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public class UpdateEndDateRequest {
@@ -12,14 +10,25 @@ public class UpdateEndDateRequest {
     private final String newEndDate;
 
     public UpdateEndDateRequest(Context ctx) {
-        this(new Gson().fromJson(
-                new String(ctx.getStub().getTransient().get("request"), StandardCharsets.UTF_8),
-                UpdateEndDateRequest.class));
-    }
-
-    private UpdateEndDateRequest(UpdateEndDateRequest req) {
-        this.assetId = Objects.requireNonNull(req.assetId, "assetId cannot be null");
-        this.newEndDate = Objects.requireNonNull(req.newEndDate, "newEndDate cannot be null");
+        String assetId = null;
+        String newEndDate = null;
+        try (RequestReader reader = RequestReader.of(ctx)) {
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "assetId":
+                        assetId = reader.nextString();
+                        break;
+                    case "newEndDate":
+                        newEndDate = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+        }
+
+        this.assetId = Objects.requireNonNull(assetId, "assetId cannot be null");
+        this.newEndDate = Objects.requireNonNull(newEndDate, "newEndDate cannot be null");
     }
 
     public String getAssetId() {
@@ -0,0 +1,117 @@
+package contract.response;
+
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+@DataType
+public class PhaseMetricsResponse {
+
+    @Property
+    private String phase;
+
+    @Property
+    private long count;
+
+    @Property
+    private double meanMicros;
+
+    @Property
+    private double p50Micros;
+
+    @Property
+    private double p99Micros;
+
+    @Property
+    private double maxMicros;
+
+    public PhaseMetricsResponse(String phase, long count, double meanMicros, double p50Micros, double p99Micros,
+                                double maxMicros) {
+        this.phase = phase;
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public void setMeanMicros(double meanMicros) {
+        this.meanMicros = meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public void setP50Micros(double p50Micros) {
+        this.p50Micros = p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public void setP99Micros(double p99Micros) {
+        this.p99Micros = p99Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    public void setMaxMicros(double maxMicros) {
+        this.maxMicros = maxMicros;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PhaseMetricsResponse that = (PhaseMetricsResponse) o;
+        return count == that.count && Double.compare(that.meanMicros, meanMicros) == 0 &&
+                Double.compare(that.p50Micros, p50Micros) == 0 && Double.compare(that.p99Micros, p99Micros) == 0 &&
+                Double.compare(that.maxMicros, maxMicros) == 0 && Objects.equals(phase, that.phase);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(phase, count, meanMicros, p50Micros, p99Micros, maxMicros);
+    }
+
+    @Override
+    public String toString() {
+        return "PhaseMetricsResponse{" +
+                "phase='" + phase + '\'' +
+                ", count=" + count +
+                ", meanMicros=" + meanMicros +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
@@ -1,6 +1,5 @@
 package model;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.annotation.DataType;
 import org.hyperledger.fabric.contract.annotation.Property;
 
@@ -11,7 +10,7 @@ import java.util.Objects;
 public class Allocated implements Serializable {
 
     public static Allocated fromByteArray(byte[] bytes) {
-        return SerializationUtils.deserialize(bytes);
+        return ModelCodec.decodeAllocated(bytes);
     }
 
     @Property
@@ -63,7 +62,7 @@ public class Allocated implements Serializable {
     }
 
     public byte[] toByteArray() {
-        return SerializationUtils.serialize(this);
+        return ModelCodec.encode(this);
     }
 
     @Override
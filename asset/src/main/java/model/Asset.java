@@ -1,7 +1,6 @@
 package model;
 
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.annotation.DataType;
 import org.hyperledger.fabric.contract.annotation.Property;
 import org.hyperledger.fabric.shim.ChaincodeException;
@@ -69,7 +68,7 @@ public class Asset implements Serializable {
     }
 
     public byte[] toByteArray() {
-        return SerializationUtils.serialize(this);
+        return ModelCodec.encode(this);
     }
 
     @Override
@@ -93,6 +92,6 @@ public class Asset implements Serializable {
     }
 
     public static Asset fromByteArray(byte[] bytes) {
-        return SerializationUtils.deserialize(bytes);
+        return ModelCodec.decodeAsset(bytes);
     }
 }
@@ -17,6 +17,11 @@ public class DateFormatter {
             .ofPattern("yyyy-MM-dd HH:mm:ss")
             .withZone(ZoneId.from(ZoneOffset.UTC));
 
+    // fixed width UTC timestamps that sort in time order, used in index keys
+    public static final DateTimeFormatter SORTABLE_DATE_TIME_FORMATTER = DateTimeFormatter
+            .ofPattern("yyyyMMddHHmmss")
+            .withZone(ZoneId.from(ZoneOffset.UTC));
+
     public static void checkDateFormat(String date) {
         try {
             LocalDateTime.parse(date, DATE_TIME_FORMATTER);
@@ -30,8 +35,19 @@ public class DateFormatter {
         return txTs.isAfter(exp);
     }
 
+    public static String toSortable(String date) {
+        return SORTABLE_DATE_TIME_FORMATTER.format(toInstant(date));
+    }
+
     public static Instant toInstant(String str) {
-        LocalDateTime date = LocalDateTime.parse(str, DATE_TIME_FORMATTER);
+        LocalDateTime date;
+        try {
+            date = LocalDateTime.parse(str, DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            // renewals used to store the expiration as an ISO-8601 instant
+            return Instant.parse(str);
+        }
+
         return date.toInstant(ZoneOffset.UTC);
     }
 
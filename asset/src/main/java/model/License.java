@@ -1,6 +1,5 @@
 package model;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.annotation.DataType;
 import org.hyperledger.fabric.contract.annotation.Property;
 
@@ -48,7 +47,7 @@ public class License implements Serializable {
     }
 
     public byte[] toByteArray() {
-        return SerializationUtils.serialize(this);
+        return ModelCodec.encode(this);
     }
 
     @Override
@@ -78,6 +77,6 @@ public class License implements Serializable {
     }
 
     public static License fromByteArray(byte[] bytes) {
-        return SerializationUtils.deserialize(bytes);
+        return ModelCodec.decodeLicense(bytes);
     }
 }
@@ -0,0 +1,98 @@
+package model;
+
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The number of licenses of an asset, stored in the SP IPDC and updated by every transaction that adds, removes, allocates
+ * or deallocates licenses of the asset.
+ */
+@DataType
+public class LicenseCount implements Serializable {
+
+    @Property
+    private int total;
+    @Property
+    private int available;
+    @Property
+    private int allocated;
+
+    public LicenseCount(int total, int available, int allocated) {
+        this.total = total;
+        this.available = available;
+        this.allocated = allocated;
+    }
+
+    public LicenseCount() {
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(int available) {
+        this.available = available;
+    }
+
+    public int getAllocated() {
+        return allocated;
+    }
+
+    public void setAllocated(int allocated) {
+        this.allocated = allocated;
+    }
+
+    /**
+     * Add the given number of available and allocated licenses, negative to subtract. The total changes by the sum.
+     */
+    public void add(int available, int allocated) {
+        this.available += available;
+        this.allocated += allocated;
+        this.total += available + allocated;
+    }
+
+    public byte[] toByteArray() {
+        return ModelCodec.encode(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LicenseCount that = (LicenseCount) o;
+        return total == that.total && available == that.available && allocated == that.allocated;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(total, available, allocated);
+    }
+
+    @Override
+    public String toString() {
+        return "LicenseCount{" +
+                "total=" + total +
+                ", available=" + available +
+                ", allocated=" + allocated +
+                '}';
+    }
+
+    public static LicenseCount fromByteArray(byte[] bytes) {
+        return ModelCodec.decodeLicenseCount(bytes);
+    }
+}
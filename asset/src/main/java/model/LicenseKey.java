@@ -1,16 +1,32 @@
 package model;
 
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+
+import java.util.List;
+
 public class LicenseKey {
 
-    public static final String LICENSE_PREFIX = "license:";
-    public static String ALLOCATED_PREFIX = "allocated:";
+    public static final String LICENSE_KEY = "license";
+    public static final String ALLOCATED_KEY = "allocated";
+    public static final String AVAILABLE_KEY = "avail";
 
     public static String allocatedLicenseKey(String orderId, String licenseId) {
-        return ALLOCATED_PREFIX + orderId + licenseId;
+        return new CompositeKey(ALLOCATED_KEY, orderId, licenseId).toString();
     }
 
     public static String licenseKey(String assetId, String licenseId) {
-        return LICENSE_PREFIX + assetId + licenseId;
+        return new CompositeKey(LICENSE_KEY, assetId, licenseId).toString();
+    }
+
+    // index key of a license that is not allocated, see AssetContract.putAvailableLicense
+    public static String availableLicenseKey(String assetId, String licenseId) {
+        return new CompositeKey(AVAILABLE_KEY, assetId, licenseId).toString();
+    }
+
+    // the last attribute of a license, allocated or available license key
+    public static String licenseIdFromKey(String key) {
+        List<String> attributes = CompositeKey.parseCompositeKey(key).getAttributes();
+        return attributes.get(attributes.size() - 1);
     }
 
     public static String hashedLicenseKey(String assetId, String licenseId, String salt) {
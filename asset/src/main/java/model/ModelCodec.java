@@ -0,0 +1,459 @@
+package model;
+
+import contract.request.LicensesRequest;
+import org.apache.commons.lang3.SerializationUtils;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes the models stored in the world state and private data collections. Values are written in a versioned binary
+ * format: a magic byte, the format version and the model type, followed by the fields of the model in declaration
+ * order. Integers and lengths are written as varints, strings as a varint of the UTF-8 length plus one (0 for null) and
+ * lists as a varint of the size plus one (0 for null) followed by the elements.
+ *
+ * Licenses start with a flags byte after the model type, {@link #LICENSE_ALLOCATED} if the license is allocated, so
+ * range scans can classify a license without decoding it (see {@link #isAllocatedLicense(byte[])}).
+ *
+ * The encoding of a model is canonical, the same model is always encoded to the same bytes. The hash of an encoded
+ * LicensesRequest can be computed from the request without encoding it, see {@link #digest(LicensesRequest)}. A request
+ * is encoded the same way in every format version except for the version byte, so a request stored by an earlier version
+ * is matched against its hash in each version, see {@link #matchesHash(LicensesRequest, byte[])}.
+ *
+ * Format version 1 did not have the license flags, all other models are the same in both versions. Values written with
+ * Java serialization before this format was introduced are still decoded, values are always written in the latest
+ * version of the binary format.
+ */
+public class ModelCodec {
+
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte VERSION = 2;
+    static final byte MIN_VERSION = 1;
+
+    // model types, new types must use a new value
+    static final byte ASSET_TYPE = 1;
+    static final byte LICENSE_TYPE = 2;
+    static final byte ALLOCATED_TYPE = 3;
+    static final byte ORDER_TYPE = 4;
+    static final byte SWID_TYPE = 5;
+    static final byte LICENSES_REQUEST_TYPE = 6;
+    static final byte LICENSE_COUNT_TYPE = 7;
+
+    static final byte LICENSE_ALLOCATED = 1;
+
+    private static final int LICENSE_FLAGS_POS = 3;
+
+    private ModelCodec() {}
+
+    public static byte[] encode(Asset asset) {
+        Writer w = new Writer(ASSET_TYPE);
+        w.writeString(asset.getId());
+        w.writeString(asset.getName());
+        w.writeString(asset.getStartDate());
+        w.writeString(asset.getEndDate());
+
+        return w.toByteArray();
+    }
+
+    public static Asset decodeAsset(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, ASSET_TYPE);
+        return new Asset(r.readString(), r.readString(), r.readString(), r.readString());
+    }
+
+    public static byte[] encode(License license) {
+        Allocated allocated = license.getAllocated();
+
+        Writer w = new Writer(LICENSE_TYPE);
+        w.writeByte(allocated == null ? 0 : LICENSE_ALLOCATED);
+        w.writeString(license.getId());
+        w.writeString(license.getSalt());
+        if (allocated != null) {
+            w.writeString(allocated.getLicenseId());
+            w.writeString(allocated.getAccount());
+            w.writeString(allocated.getExpiration());
+            w.writeString(allocated.getOrderId());
+        }
+
+        return w.toByteArray();
+    }
+
+    public static License decodeLicense(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, LICENSE_TYPE);
+        if (r.version == 1) {
+            return new License(r.readString(), r.readString(), r.readAllocated());
+        }
+
+        int flags = r.readByte();
+        String id = r.readString();
+        String salt = r.readString();
+        Allocated allocated = null;
+        if ((flags & LICENSE_ALLOCATED) != 0) {
+            allocated = new Allocated(r.readString(), r.readString(), r.readString(), r.readString());
+        }
+
+        return new License(id, salt, allocated);
+    }
+
+    /**
+     * Check if the encoded license is allocated. Only the license flags are read, values without flags are decoded.
+     */
+    public static boolean isAllocatedLicense(byte[] bytes) {
+        if (!hasLicenseFlags(bytes)) {
+            return decodeLicense(bytes).getAllocated() != null;
+        }
+
+        return (bytes[LICENSE_FLAGS_POS] & LICENSE_ALLOCATED) != 0;
+    }
+
+    public static byte[] encode(Allocated allocated) {
+        Writer w = new Writer(ALLOCATED_TYPE);
+        w.writeAllocated(allocated);
+
+        return w.toByteArray();
+    }
+
+    public static Allocated decodeAllocated(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        return new Reader(bytes, ALLOCATED_TYPE).readAllocated();
+    }
+
+    public static byte[] encode(Order order) {
+        Writer w = new Writer(ORDER_TYPE);
+        w.writeString(order.getId());
+        w.writeString(order.getAccount());
+        w.writeString(order.getStatus() == null ? null : order.getStatus().name());
+        w.writeString(order.getInitiationDate());
+        w.writeString(order.getApprovalDate());
+        w.writeString(order.getAllocatedDate());
+        w.writeString(order.getLatestRenewalDate());
+        w.writeString(order.getAssetId());
+        w.writeSignedVarint(order.getAmount());
+        w.writeSignedVarint(order.getDuration());
+        w.writeDouble(order.getPrice());
+        w.writeString(order.getExpiration());
+        w.writeStringList(order.getLicenses());
+
+        return w.toByteArray();
+    }
+
+    public static Order decodeOrder(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, ORDER_TYPE);
+        String id = r.readString();
+        String account = r.readString();
+        String status = r.readString();
+        return new Order(
+                id,
+                account,
+                status == null ? null : Order.Status.valueOf(status),
+                r.readString(),
+                r.readString(),
+                r.readString(),
+                r.readString(),
+                r.readString(),
+                r.readSignedVarint(),
+                r.readSignedVarint(),
+                r.readDouble(),
+                r.readString(),
+                r.readStringList()
+        );
+    }
+
+    public static byte[] encode(SWID swid) {
+        Writer w = new Writer(SWID_TYPE);
+        w.writeString(swid.getPrimaryTag());
+        w.writeString(swid.getXml());
+        w.writeString(swid.getOrderId());
+        w.writeString(swid.getLicenseId());
+
+        return w.toByteArray();
+    }
+
+    public static SWID decodeSWID(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, SWID_TYPE);
+        return new SWID(r.readString(), r.readString(), r.readString(), r.readString());
+    }
+
+    public static byte[] encode(LicensesRequest req) {
+        Writer w = new Writer(LICENSES_REQUEST_TYPE);
+        writeLicensesRequest(w, req);
+
+        return w.toByteArray();
+    }
+
+    /**
+     * Compute the SHA-256 digest of the encoded request by writing the encoding directly into the digest, the encoded
+     * value is never built. The digest is equal to the private data hash of a value written with
+     * {@link #encode(LicensesRequest)}.
+     */
+    public static byte[] digest(LicensesRequest req) {
+        return digest(req, VERSION);
+    }
+
+    // the digest of the request encoded in the given format version
+    static byte[] digest(LicensesRequest req, byte version) {
+        Writer w = new Writer(version, LICENSES_REQUEST_TYPE, SHA256.newDigest());
+        writeLicensesRequest(w, req);
+
+        return w.digest();
+    }
+
+    /**
+     * Check if the given private data hash is the hash of the request encoded in any supported format version, starting
+     * with the current version. A request initiated before the format version was increased can still be completed.
+     * If the request encoding changes in a new version, the digest of the earlier versions must keep the earlier encoding.
+     */
+    public static boolean matchesHash(LicensesRequest req, byte[] hash) {
+        for (byte version = VERSION; version >= MIN_VERSION; version--) {
+            if (MessageDigest.isEqual(hash, digest(req, version))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void writeLicensesRequest(Writer w, LicensesRequest req) {
+        w.writeString(req.getAccount());
+        w.writeString(req.getAssetId());
+        w.writeString(req.getOrderId());
+        w.writeString(req.getExpiration());
+        w.writeStringList(req.getLicenses());
+    }
+
+    public static LicensesRequest decodeLicensesRequest(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, LICENSES_REQUEST_TYPE);
+        return new LicensesRequest(r.readString(), r.readString(), r.readString(), r.readString(), r.readStringList());
+    }
+
+    public static byte[] encode(LicenseCount count) {
+        Writer w = new Writer(LICENSE_COUNT_TYPE);
+        w.writeSignedVarint(count.getTotal());
+        w.writeSignedVarint(count.getAvailable());
+        w.writeSignedVarint(count.getAllocated());
+
+        return w.toByteArray();
+    }
+
+    public static LicenseCount decodeLicenseCount(byte[] bytes) {
+        Reader r = new Reader(bytes, LICENSE_COUNT_TYPE);
+        return new LicenseCount(r.readSignedVarint(), r.readSignedVarint(), r.readSignedVarint());
+    }
+
+    static boolean isBinary(byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    private static boolean hasLicenseFlags(byte[] bytes) {
+        return bytes.length > LICENSE_FLAGS_POS && bytes[0] == MAGIC && bytes[1] >= 2 && bytes[2] == LICENSE_TYPE;
+    }
+
+    // writes the encoding to a byte array, or into a digest if one is given
+    private static class Writer {
+        private final ByteArrayOutputStream out;
+        private final MessageDigest digest;
+
+        Writer(byte type) {
+            this(VERSION, type, null);
+        }
+
+        Writer(byte version, byte type, MessageDigest digest) {
+            this.digest = digest;
+            this.out = digest == null ? new ByteArrayOutputStream() : null;
+            put(MAGIC);
+            put(version);
+            put(type);
+        }
+
+        private void put(int b) {
+            if (digest != null) {
+                digest.update((byte) b);
+            } else {
+                out.write(b);
+            }
+        }
+
+        private void put(byte[] bytes) {
+            if (digest != null) {
+                digest.update(bytes);
+            } else {
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+
+        void writeByte(int b) {
+            put(b);
+        }
+
+        void writeLong(long value) {
+            for (int i = 7; i >= 0; i--) {
+                put((int) (value >>> (i * 8)));
+            }
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((int) value);
+        }
+
+        void writeSignedVarint(int value) {
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarint(0);
+                return;
+            }
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            put(bytes);
+        }
+
+        void writeStringList(List<String> list) {
+            if (list == null) {
+                writeVarint(0);
+                return;
+            }
+
+            writeVarint(list.size() + 1L);
+            for (String s : list) {
+                writeString(s);
+            }
+        }
+
+        void writeAllocated(Allocated allocated) {
+            if (allocated == null) {
+                put(0);
+                return;
+            }
+
+            put(1);
+            writeString(allocated.getLicenseId());
+            writeString(allocated.getAccount());
+            writeString(allocated.getExpiration());
+            writeString(allocated.getOrderId());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        byte[] digest() {
+            return digest.digest();
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buf;
+        private final int version;
+
+        Reader(byte[] bytes, byte expectedType) {
+            this.buf = ByteBuffer.wrap(bytes);
+            buf.get();
+            version = buf.get();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new ChaincodeException("unsupported value version " + version);
+            }
+
+            byte type = buf.get();
+            if (type != expectedType) {
+                throw new ChaincodeException("unexpected value type " + type + ", expected " + expectedType);
+            }
+        }
+
+        int readByte() {
+            return buf.get() & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            return value;
+        }
+
+        int readSignedVarint() {
+            int value = (int) readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readDouble() {
+            return buf.getDouble();
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+
+            byte[] bytes = new byte[length - 1];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> readStringList() {
+            int size = (int) readVarLong();
+            if (size == 0) {
+                return null;
+            }
+
+            List<String> list = new ArrayList<>(size - 1);
+            for (int i = 0; i < size - 1; i++) {
+                list.add(readString());
+            }
+
+            return list;
+        }
+
+        Allocated readAllocated() {
+            if (buf.get() == 0) {
+                return null;
+            }
+
+            return new Allocated(readString(), readString(), readString(), readString());
+        }
+    }
+}
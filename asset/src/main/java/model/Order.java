@@ -1,7 +1,6 @@
 package model;
 
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.annotation.DataType;
 import org.hyperledger.fabric.contract.annotation.Property;
 
@@ -9,13 +8,11 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 
-import static contract.OrderContract.ORDER_PREFIX;
-
 @DataType
 public class Order implements Serializable {
 
     public static Order fromByteArray(byte[] bytes) {
-        return SerializationUtils.deserialize(bytes);
+        return ModelCodec.decodeOrder(bytes);
     }
 
     @Property
@@ -178,7 +175,7 @@ public class Order implements Serializable {
     }
 
     public byte[] toByteArray() {
-        return SerializationUtils.serialize(this);
+        return ModelCodec.encode(this);
     }
 
     @Override
@@ -12,22 +12,20 @@ public class SHA256 {
 
     public static final byte[] EMPTY_HASH_BYTES = hashBytesToBytes(new byte[]{});
 
-    public static byte[] hashBytesToBytes(byte[] data) {
+    public static MessageDigest newDigest() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            return digest.digest(data);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new ChaincodeException(e);
         }
     }
 
+    public static byte[] hashBytesToBytes(byte[] data) {
+        return newDigest().digest(data);
+    }
+
     public static String hashStrToStr(String data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-            return new String(Hex.encode(hash));
-        } catch (NoSuchAlgorithmException e) {
-            throw new ChaincodeException(e);
-        }
+        byte[] hash = newDigest().digest(data.getBytes(StandardCharsets.UTF_8));
+        return new String(Hex.encode(hash));
     }
 }
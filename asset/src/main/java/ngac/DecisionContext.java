@@ -0,0 +1,51 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
+import model.Status;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A transaction context that remembers the account status of the client and the privileges computed by the PDP for
+ * the lifetime of the transaction. The client, its role and its account status cannot change during a transaction, so
+ * the authorization chaincode is invoked at most once for the status and once the privileges on a target are known
+ * every other check against that target in the same transaction reuses them. Contracts that call the PDP create this
+ * context in createContext.
+ */
+public class DecisionContext extends Context {
+
+    private final Map<String, AccessRightSet> privileges;
+    private Status accountStatus;
+
+    public DecisionContext(ChaincodeStub stub) {
+        super(stub);
+        this.privileges = new HashMap<>();
+    }
+
+    Status getAccountStatus() {
+        return accountStatus;
+    }
+
+    void setAccountStatus(Status accountStatus) {
+        this.accountStatus = accountStatus;
+    }
+
+    AccessRightSet getPrivileges(String target) {
+        return privileges.get(target);
+    }
+
+    void putPrivileges(String target, AccessRightSet privs) {
+        privileges.put(target, privs);
+    }
+
+    /**
+     * Forget the account status and all privileges computed so far.
+     */
+    protected void clearDecisions() {
+        accountStatus = null;
+        privileges.clear();
+    }
+}
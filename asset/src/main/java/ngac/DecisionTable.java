@@ -0,0 +1,93 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
+import gov.nist.csd.pm.pap.query.UserContext;
+import model.Status;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import static ngac.PolicyBuilder.*;
+
+/**
+ * The asset policy only depends on the role of the user, the status of the user's account, whether the user is in
+ * ADMINMSP, whether the target account is the user's own account, and whether the target is the asset target or an
+ * account target. This class evaluates the policy for every combination of those inputs when it is loaded and stores
+ * the privileges in a flat table, so a decision is an array lookup instead of a graph traversal. The returned sets are
+ * shared and must not be modified.
+ */
+class DecisionTable {
+
+    static final String[] ROLES = {ACQ_OFFICER, TPOC, LICENSE_OWNER};
+
+    // placeholder names used to evaluate the policy, only their relationship to ADMINMSP and each other matters
+    private static final String DECISION_USER = "decision_user";
+    private static final String DECISION_ACCOUNT = "decision_account";
+    private static final String OTHER_ACCOUNT = "decision_other_account";
+
+    private static final int NUM_STATUSES = Status.values().length;
+
+    private static final AccessRightSet[] ASSET_TABLE = new AccessRightSet[ROLES.length * NUM_STATUSES * 2];
+    private static final AccessRightSet[] ACCOUNT_TABLE = new AccessRightSet[ROLES.length * NUM_STATUSES * 2 * 2];
+
+    static {
+        try {
+            for (int role = 0; role < ROLES.length; role++) {
+                for (Status status : Status.values()) {
+                    for (boolean admin : new boolean[]{false, true}) {
+                        PolicyBuilder.DecisionUser user = placeholderUser(ROLES[role], status, admin);
+                        ASSET_TABLE[assetIndex(role, status, admin)] = buildPolicyForAssetDecision(user)
+                                .query()
+                                .access()
+                                .computePrivileges(user.getUserCtx(), ASSET_TARGET);
+
+                        for (boolean own : new boolean[]{false, true}) {
+                            String target = own ? user.getAccount() : OTHER_ACCOUNT;
+                            ACCOUNT_TABLE[accountIndex(role, status, admin, own)] =
+                                    buildPolicyForAccountDecision(user, target)
+                                            .query()
+                                            .access()
+                                            .computePrivileges(user.getUserCtx(), accountTarget(target));
+                        }
+                    }
+                }
+            }
+        } catch (PMException e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    static AccessRightSet assetPrivileges(String role, Status status, boolean admin) {
+        return ASSET_TABLE[assetIndex(roleIndex(role), status, admin)];
+    }
+
+    static AccessRightSet accountPrivileges(String role, Status status, boolean admin, boolean own) {
+        return ACCOUNT_TABLE[accountIndex(roleIndex(role), status, admin, own)];
+    }
+
+    static PolicyBuilder.DecisionUser placeholderUser(String role, Status status, boolean admin) {
+        return new PolicyBuilder.DecisionUser(
+                new UserContext(DECISION_USER),
+                admin ? ADMINMSP : DECISION_ACCOUNT,
+                role,
+                status
+        );
+    }
+
+    private static int roleIndex(String role) {
+        for (int i = 0; i < ROLES.length; i++) {
+            if (ROLES[i].equals(role)) {
+                return i;
+            }
+        }
+
+        throw new ChaincodeException("invalid role " + role);
+    }
+
+    private static int assetIndex(int role, Status status, boolean admin) {
+        return (role * NUM_STATUSES + status.ordinal()) * 2 + (admin ? 1 : 0);
+    }
+
+    private static int accountIndex(int role, Status status, boolean admin, boolean own) {
+        return assetIndex(role, status, admin) * 2 + (own ? 1 : 0);
+    }
+}
@@ -1,16 +1,18 @@
 package ngac;
 
 import contract.response.AssetDetailResponse;
-import gov.nist.csd.pm.pap.PAP;
-import gov.nist.csd.pm.pap.exception.PMException;
 import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
-import gov.nist.csd.pm.pap.query.UserContext;
 import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.Context;
-import org.hyperledger.fabric.shim.ChaincodeException;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import static ngac.DecisionMetrics.Phase.COMPUTE_PRIVILEGES;
 import static ngac.PolicyBuilder.*;
-import static ngac.PolicyBuilder.accountTarget;
 
 public class PDP {
     private static final Logger log = Logger.getLogger("PDP");
@@ -75,6 +77,31 @@ public class PDP {
         checkAccountPrivileges(ctx, targetAccount, APPROVE_ORDER);
     }
 
+    /**
+     * Filter the given accounts to those the client has the access right on. The client is resolved once and each
+     * distinct account is evaluated once.
+     * @param ctx The transaction context.
+     * @param accounts The accounts to filter.
+     * @param ar The access right to check.
+     * @return The accounts the client has the access right on.
+     */
+    public static Set<String> filterAccounts(Context ctx, Collection<String> accounts, String ar) {
+        Set<String> permitted = new HashSet<>();
+        if (accounts.isEmpty()) {
+            return permitted;
+        }
+
+        // the client is the same for every account, resolve it once and look up each account in the decision table
+        PolicyBuilder.DecisionUser user = PolicyBuilder.decisionUser(ctx);
+        for (String account : new HashSet<>(accounts)) {
+            if (getPrivileges(ctx, "account:" + account, () -> accountPrivileges(user, account)).contains(ar)) {
+                permitted.add(account);
+            }
+        }
+
+        return permitted;
+    }
+
     public static void canReturnLicense(Context ctx, String targetAccount) {
         checkAccountPrivileges(ctx, targetAccount, RETURN_LICENSE);
     }
@@ -92,38 +119,68 @@ public class PDP {
     }
 
     private static void checkAssetPrivileges(Context ctx, String ar) {
-        try {
-            UserContext userContextFromCID = getUserContextFromCID(ctx.getClientIdentity());
-            PAP pap = PolicyBuilder.buildPolicyForAssetDecision(ctx);
-            AccessRightSet privs = pap
-                    .query()
-                    .access()
-                    .computePrivileges(userContextFromCID, ASSET_TARGET);
-            log.info("user " + userContextFromCID.getUser() + " has privileges " + privs);
-
-            if (!privs.contains(ar)) {
-                throw new UnauthorizedException();
-            }
-        } catch (PMException e) {
-            throw new ChaincodeException(e);
+        AccessRightSet privs = getPrivileges(ctx, "asset", () -> {
+            PolicyBuilder.DecisionUser user = PolicyBuilder.decisionUser(ctx);
+
+            long start = System.nanoTime();
+            AccessRightSet userPrivs = DecisionTable.assetPrivileges(user.getRole(), user.getStatus(), user.isAdmin());
+            DecisionMetrics.record(COMPUTE_PRIVILEGES, start);
+
+            logDecision(user, ASSET_TARGET, userPrivs);
+            return userPrivs;
+        });
+
+        if (!privs.contains(ar)) {
+            throw new UnauthorizedException();
         }
     }
 
     private static void checkAccountPrivileges(Context ctx, String account, String ar) {
-        try {
-            UserContext userContextFromCID = getUserContextFromCID(ctx.getClientIdentity());
-            PAP pap = PolicyBuilder.buildPolicyForAccountDecision(ctx, account);
-            AccessRightSet privs = pap
-                    .query()
-                    .access()
-                    .computePrivileges(userContextFromCID, accountTarget(account));
-            log.info("user " + userContextFromCID.getUser() + " has privileges " + privs);
-
-            if (!privs.contains(ar)) {
-                throw new UnauthorizedException();
-            }
-        } catch (PMException e) {
-            throw new ChaincodeException(e);
+        if (!getAccountPrivileges(ctx, account).contains(ar)) {
+            throw new UnauthorizedException();
         }
     }
+
+    private static AccessRightSet getAccountPrivileges(Context ctx, String account) {
+        return getPrivileges(ctx, "account:" + account, () -> accountPrivileges(PolicyBuilder.decisionUser(ctx), account));
+    }
+
+    private static AccessRightSet accountPrivileges(PolicyBuilder.DecisionUser user, String account) {
+        long start = System.nanoTime();
+        AccessRightSet userPrivs = DecisionTable.accountPrivileges(
+                user.getRole(), user.getStatus(), user.isAdmin(), user.getAccount().equals(account)
+        );
+        DecisionMetrics.record(COMPUTE_PRIVILEGES, start);
+
+        logDecision(user, accountTarget(account), userPrivs);
+        return userPrivs;
+    }
+
+    private static void logDecision(PolicyBuilder.DecisionUser user, String target, AccessRightSet privs) {
+        DecisionMetrics.decisionComplete();
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("decision user=%s account=%s role=%s status=%s target=%s privileges=%s",
+                                   user.getUserCtx().getUser(), user.getAccount(), user.getRole(), user.getStatus(),
+                                   target, privs));
+        }
+    }
+
+    /**
+     * Get the privileges on the target, computing them only if they have not already been computed in this transaction.
+     */
+    private static AccessRightSet getPrivileges(Context ctx, String target, Supplier<AccessRightSet> compute) {
+        if (!(ctx instanceof DecisionContext)) {
+            return compute.get();
+        }
+
+        DecisionContext decisionCtx = (DecisionContext) ctx;
+        AccessRightSet privs = decisionCtx.getPrivileges(target);
+        if (privs == null) {
+            privs = compute.get();
+            decisionCtx.putPrivileges(target, privs);
+        }
+
+        return privs;
+    }
 }
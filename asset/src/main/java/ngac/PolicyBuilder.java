@@ -8,11 +8,6 @@ import gov.nist.csd.pm.pap.prohibition.ContainerCondition;
 import gov.nist.csd.pm.pap.prohibition.ProhibitionSubject;
 import gov.nist.csd.pm.pap.query.UserContext;
 import model.Status;
-import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
-import org.bouncycastle.asn1.x500.RDN;
-import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.asn1.x500.style.BCStyle;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
@@ -20,12 +15,13 @@ import org.hyperledger.fabric.shim.Chaincode;
 import org.hyperledger.fabric.shim.ChaincodeException;
 
 import java.nio.charset.StandardCharsets;
-import java.security.cert.CertificateEncodingException;
-import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 
 import static gov.nist.csd.pm.pap.op.AdminAccessRights.ALL_ACCESS_RIGHTS;
 import static model.Status.*;
+import static ngac.DecisionMetrics.Phase.*;
 
 public class PolicyBuilder {
 
@@ -74,29 +70,73 @@ public class PolicyBuilder {
 
     private static final Logger log = Logger.getLogger("PolicyBuilder");
 
+    private static final String DENY_ACQ_PROHIBITION = "deny non-adminmsp ACQ";
+
+    private static final AtomicLong avoidedStatusLookups = new AtomicLong();
+
+    private static final UserContextCache USER_CONTEXT_CACHE = new UserContextCache(4096);
+
     public static PAP buildPolicyForAssetDecision(Context ctx) throws PMException {
-        PAP pap = buildPolicyBase(ctx);
+        return buildPolicyForAssetDecision(decisionUser(ctx));
+    }
+
+    public static PAP buildPolicyForAccountDecision(Context ctx, String targetAccount) throws PMException {
+        return buildPolicyForAccountDecision(decisionUser(ctx), targetAccount);
+    }
+
+    static PAP buildPolicyForAssetDecision(DecisionUser user) throws PMException {
+        long start = System.nanoTime();
+        PAP pap = buildBasePolicy();
+        addAssetDecisionNodes(pap, user);
+        DecisionMetrics.record(GRAPH_BUILD, start);
+        return pap;
+    }
+
+    static PAP buildPolicyForAccountDecision(DecisionUser user, String targetAccount) throws PMException {
+        long start = System.nanoTime();
+        PAP pap = buildBasePolicy();
+        addAccountDecisionNodes(pap, user, targetAccount);
+        DecisionMetrics.record(GRAPH_BUILD, start);
+        return pap;
+    }
+
+    /**
+     * Resolve the NGAC user, account, role and account status of the client. The role is validated against the
+     * account and the status is read from the authorization chaincode.
+     */
+    static DecisionUser decisionUser(Context ctx) {
+        String cidAccount = ctx.getClientIdentity().getMSPID();
+
+        long start = System.nanoTime();
+        UserContext userContext = getUserContextFromCID(ctx.getClientIdentity());
+        DecisionMetrics.record(CERT_PARSE, start);
+
+        String role = getRole(ctx, cidAccount);
+        Status status = getAccountStatus(ctx);
+
+        return new DecisionUser(userContext, cidAccount, role, status);
+    }
+
+    private static void addAssetDecisionNodes(PAP pap, DecisionUser user) throws PMException {
+        addUser(pap, user);
 
         // create asset target for decisions
         pap.modify().graph().createObject(ASSET_TARGET, List.of("RBAC/asset", "Status/asset"));
 
         // deny non adminmsp ACQ eleveated privs on assets
-        String cidAccount = ctx.getClientIdentity().getMSPID();
-        if (!cidAccount.equals(ADMINMSP)) {
+        if (!user.account.equals(ADMINMSP)) {
             pap.modify().prohibitions().createProhibition(
-                    "deny non-adminmsp ACQ",
+                    DENY_ACQ_PROHIBITION,
                     ProhibitionSubject.userAttribute(ACQ_OFFICER),
                     new AccessRightSet(READ_ASSET_DETAIL, ALLOCATE_LICENSE),
                     false,
                     List.of(new ContainerCondition("RBAC/asset", false))
             );
         }
-
-        return pap;
     }
 
-    public static PAP buildPolicyForAccountDecision(Context ctx, String targetAccount) throws PMException {
-        PAP pap = buildPolicyBase(ctx);
+    private static void addAccountDecisionNodes(PAP pap, DecisionUser user, String targetAccount) throws PMException {
+        addUser(pap, user);
 
         String accountTarget = accountTarget(targetAccount);
         String targetAccountOA = accountOA(targetAccount);
@@ -114,24 +154,35 @@ public class PolicyBuilder {
 
         // if cid is adminmsp, grant access to target account oa and
         // deny adminmsp elevated privs on account target
-        String cidAccount = ctx.getClientIdentity().getMSPID();
-        if (cidAccount.equals(ADMINMSP)) {
-            String cidAcctUA = accountUA(cidAccount);
+        if (user.account.equals(ADMINMSP)) {
+            String cidAcctUA = accountUA(user.account);
             pap.modify().graph().associate(cidAcctUA, targetAccountOA, new AccessRightSet(ALL_ACCESS_RIGHTS));
 
             pap.modify().prohibitions().createProhibition(
-                    "deny non-adminmsp ACQ",
+                    DENY_ACQ_PROHIBITION,
                     ProhibitionSubject.userAttribute(ACQ_OFFICER),
                     new AccessRightSet(APPROVE_ORDER, DENY_ORDER),
                     false,
                     List.of(new ContainerCondition("RBAC/account", false))
             );
         }
+    }
 
-        return pap;
+    private static void addUser(PAP pap, DecisionUser user) throws PMException {
+        // build account ua config
+        String accountUA = accountUA(user.account);
+        pap.modify().graph().createUserAttribute(accountUA, List.of("Account"));
+
+        // create user and assign to attributes
+        pap.modify().graph().createUser(user.userCtx.getUser(), List.of(user.role, accountUA, user.status.toString()));
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("building policy user=%s attributes=[%s, %s, %s]",
+                                   user.userCtx.getUser(), user.role, accountUA, user.status));
+        }
     }
 
-    private static PAP buildPolicyBase(Context ctx) throws PMException {
+    private static PAP buildBasePolicy() throws PMException {
         PAP pap = new MemoryPAP();
 
         pap.modify().operations().setResourceOperations(RESOURCE_ARSET);
@@ -139,19 +190,6 @@ public class PolicyBuilder {
         // build attribute hierarchy
         buildAttributes(pap);
 
-        // build account ua config
-        String cidAccount = ctx.getClientIdentity().getMSPID();
-        String accountUA = accountUA(cidAccount);
-        pap.modify().graph().createUserAttribute(accountUA, List.of("Account"));
-
-        // create user and assign to attributes
-        UserContext userContext = getUserContextFromCID(ctx.getClientIdentity());
-        String role = getRole(ctx, cidAccount);
-        Status status = getAccountStatus(ctx);
-        pap.modify().graph().createUser(userContext.getUser(), List.of(role, accountUA, status.toString()));
-
-        log.info("building policy for user " + userContext.getUser() + " with attributes [" + role + ", " + accountUA + ", " + status + "]");
-
         return pap;
     }
 
@@ -219,24 +257,37 @@ public class PolicyBuilder {
     }
 
     public static UserContext getUserContextFromCID(ClientIdentity cid) {
-        X509Certificate cert = cid.getX509Certificate();
-        String mspid = cid.getMSPID();
-
-        String user;
-        try {
-            JcaX509CertificateHolder jcaX509CertificateHolder = new JcaX509CertificateHolder(cert);
-            X500Name subject = jcaX509CertificateHolder.getSubject();
-            RDN cnRDN = subject.getRDNs(BCStyle.CN)[0];
-            AttributeTypeAndValue first = cnRDN.getFirst();
-            user = first.getValue().toString();
-        } catch (CertificateEncodingException e) {
-            throw new ChaincodeException(e);
-        }
+        return USER_CONTEXT_CACHE.get(cid);
+    }
 
-        return new UserContext(user + ":" + mspid);
+    /**
+     * @return The number of calls to the authorization chaincode for an account status that were avoided because the
+     * status was already known for the transaction.
+     */
+    public static long getAvoidedStatusLookups() {
+        return avoidedStatusLookups.get();
     }
 
     private static Status getAccountStatus(Context ctx) {
+        if (ctx instanceof DecisionContext) {
+            DecisionContext decisionCtx = (DecisionContext) ctx;
+            Status status = decisionCtx.getAccountStatus();
+            if (status != null) {
+                avoidedStatusLookups.incrementAndGet();
+                return status;
+            }
+
+            status = invokeGetAccountStatus(ctx);
+            decisionCtx.setAccountStatus(status);
+            return status;
+        }
+
+        return invokeGetAccountStatus(ctx);
+    }
+
+    private static Status invokeGetAccountStatus(Context ctx) {
+        long start = System.nanoTime();
+
         // invoke the ATO channel chaincode to get the status of the requesting account using GetAccountStatus
         // the MSPID to check is embedded in the request context
         Chaincode.Response response = ctx.getStub()
@@ -245,6 +296,8 @@ public class PolicyBuilder {
                                                  List.of("account:GetAccountStatus".getBytes(StandardCharsets.UTF_8)),
                                                  AUTH_CHANNEL_NAME
                                          );
+        DecisionMetrics.record(STATUS_INVOKE, start);
+
         return Status.fromString(response.getStringPayload());
     }
 
@@ -272,4 +325,41 @@ public class PolicyBuilder {
     private static String accountOA(String account) {
         return account + "_OA";
     }
+
+    /**
+     * The attributes of a user that are relevant to an asset or account decision.
+     */
+    static class DecisionUser {
+        private final UserContext userCtx;
+        private final String account;
+        private final String role;
+        private final Status status;
+
+        DecisionUser(UserContext userCtx, String account, String role, Status status) {
+            this.userCtx = userCtx;
+            this.account = account;
+            this.role = role;
+            this.status = status;
+        }
+
+        UserContext getUserCtx() {
+            return userCtx;
+        }
+
+        String getAccount() {
+            return account;
+        }
+
+        String getRole() {
+            return role;
+        }
+
+        Status getStatus() {
+            return status;
+        }
+
+        boolean isAdmin() {
+            return account.equals(ADMINMSP);
+        }
+    }
 }
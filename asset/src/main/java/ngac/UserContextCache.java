@@ -0,0 +1,85 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.query.UserContext;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.hyperledger.fabric.contract.ClientIdentity;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe, size bounded cache of NGAC user contexts keyed by the SHA-256 fingerprint of the client certificate
+ * and the client's MSPID. The user name is the CN of the certificate subject followed by the MSPID. Once the cache is
+ * full the least recently used entry is evicted.
+ */
+public class UserContextCache {
+
+    private final Map<String, UserContext> cache;
+
+    public UserContextCache(int maxEntries) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserContext> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public UserContext get(ClientIdentity cid) {
+        X509Certificate cert = cid.getX509Certificate();
+        String mspid = cid.getMSPID();
+        String key = fingerprint(cert) + ":" + mspid;
+
+        synchronized (cache) {
+            UserContext userCtx = cache.get(key);
+            if (userCtx != null) {
+                return userCtx;
+            }
+        }
+
+        UserContext userCtx = new UserContext(getCN(cert) + ":" + mspid);
+
+        synchronized (cache) {
+            cache.put(key, userCtx);
+        }
+
+        return userCtx;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static String fingerprint(X509Certificate cert) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(cert.getEncoded()));
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    private static String getCN(X509Certificate cert) {
+        try {
+            JcaX509CertificateHolder jcaX509CertificateHolder = new JcaX509CertificateHolder(cert);
+            X500Name subject = jcaX509CertificateHolder.getSubject();
+            RDN cnRDN = subject.getRDNs(BCStyle.CN)[0];
+            AttributeTypeAndValue first = cnRDN.getFirst();
+            return first.getValue().toString();
+        } catch (CertificateEncodingException e) {
+            throw new ChaincodeException(e);
+        }
+    }
+}
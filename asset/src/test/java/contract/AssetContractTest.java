@@ -5,15 +5,20 @@ import contract.response.AllocateLicensesResponse;
 import contract.response.AssetDetailResponse;
 import mock.MockContext;
 import mock.MockIdentity;
+import model.LicenseCount;
 import model.Status;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
+import static contract.AssetContract.ADMINMSP_IPDC;
+import static contract.AssetContract.licenseCountKey;
 import static mock.MockContextUtil.newTestContextWithAuthorized;
+import static model.LicenseKey.availableLicenseKey;
 import static org.junit.jupiter.api.Assertions.*;
 
 class AssetContractTest {
@@ -119,6 +124,8 @@ class AssetContractTest {
             // send
             ctx.setTransientData(licensesRequest);
             orderContract.SendLicenses(ctx);
+            assertEquals(0, ctx.getStub().getPrivateData(ADMINMSP_IPDC, availableLicenseKey("123", "1")).length);
+            assertEquals(new LicenseCount(1, 0, 1), assetContract.getLicenseCount(ctx, "123"));
 
             // test
             ctx.setClientIdentity(MockIdentity.ORG1_LO);
@@ -130,6 +137,137 @@ class AssetContractTest {
         }
     }
 
+    @Nested
+    class AvailableLicenseIndex {
+        @Test
+        void test_indexFollowsAddAndRemove() {
+            MockContext ctx = newTestContextWithAuthorized(MockIdentity.ORG1_LO);
+            ctx.setTxId("123");
+            ctx.setTimestamp(Instant.now());
+            ctx.setTransientData(new AddAssetRequest(
+                    "asset1", "2024-01-01 00:00:00", Set.of(new LicenseIdWithSaltRequest("1", "1"))
+            ));
+            assetContract.AddAsset(ctx);
+            ctx.setTransientData(new AddLicensesRequest(
+                    "123", Set.of(new LicenseIdWithSaltRequest("2", "2"))
+            ));
+            assetContract.AddLicenses(ctx);
+            assertEquals(Set.of("1", "2"), Set.copyOf(assetContract.getAvailableLicenseIds(ctx, "123", 10)));
+            assertEquals(1, assetContract.getAvailableLicenseIds(ctx, "123", 1).size());
+
+            ctx.setTransientData(new RemoveLicensesRequest("123", Set.of("1")));
+            assetContract.RemoveLicenses(ctx);
+            assertEquals(Set.of("2"), Set.copyOf(assetContract.getAvailableLicenseIds(ctx, "123", 10)));
+        }
+
+        @Test
+        void test_repairIndex() {
+            MockContext ctx = newTestContextWithAuthorized(MockIdentity.ORG1_LO);
+            ctx.setTxId("123");
+            ctx.setTimestamp(Instant.now());
+            ctx.setTransientData(new AddAssetRequest(
+                    "asset1", "2024-01-01 00:00:00",
+                    Set.of(new LicenseIdWithSaltRequest("1", "1"), new LicenseIdWithSaltRequest("2", "2"))
+            ));
+            assetContract.AddAsset(ctx);
+
+            // a license missing from the index and an index entry without a license
+            ctx.getStub().delPrivateData(ADMINMSP_IPDC, availableLicenseKey("123", "1"));
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, availableLicenseKey("123", "3"), new byte[]{0});
+
+            ctx.setTransientData(new AssetIdRequest("123"));
+            String[] repairs = assetContract.GetLicenseIndexRepairs(ctx);
+            assertEquals(Set.of("1", "3"), Set.of(repairs));
+
+            ctx.setTransientData(new AssetIdAndLicensesRequest("123", Set.of(repairs)));
+            assetContract.RepairLicenseIndex(ctx);
+            assertEquals(Set.of("1", "2"), Set.copyOf(assetContract.getAvailableLicenseIds(ctx, "123", 10)));
+
+            ctx.setTransientData(new AssetIdRequest("123"));
+            assertEquals(0, assetContract.GetLicenseIndexRepairs(ctx).length);
+        }
+    }
+
+    @Nested
+    class CompositeKeys {
+        @Test
+        void test_assetIdPrefixDoesNotMatchOtherAssets() {
+            MockContext ctx = newTestContextWithAuthorized(MockIdentity.ORG1_LO);
+            ctx.setTimestamp(Instant.now());
+            for (String id : List.of("12", "123")) {
+                ctx.setTxId(id);
+                ctx.setTransientData(new AddAssetRequest(
+                        "asset" + id, "2024-01-01 00:00:00",
+                        Set.of(new LicenseIdWithSaltRequest("3", "3"), new LicenseIdWithSaltRequest(id, id))
+                ));
+                assetContract.AddAsset(ctx);
+            }
+
+            // with concatenated keys asset 12 would also match the licenses of asset 123
+            assertEquals(Set.of("3", "12"), Set.copyOf(assetContract.getAvailableLicenseIds(ctx, "12", 10)));
+            assertEquals(new LicenseCount(2, 2, 0), assetContract.countLicenses(ctx, "12"));
+            assertEquals(new LicenseCount(2, 2, 0), assetContract.countLicenses(ctx, "123"));
+            assertEquals(2, assetContract.GetAssets(ctx).length);
+        }
+    }
+
+    @Nested
+    class LicenseCounts {
+        @Test
+        void test_countsFollowAddAndRemove() {
+            MockContext ctx = newTestContextWithAuthorized(MockIdentity.ORG1_LO);
+            ctx.setTxId("123");
+            ctx.setTimestamp(Instant.now());
+            ctx.setTransientData(new AddAssetRequest(
+                    "asset1", "2024-01-01 00:00:00",
+                    Set.of(new LicenseIdWithSaltRequest("1", "1"), new LicenseIdWithSaltRequest("2", "2"))
+            ));
+            assetContract.AddAsset(ctx);
+            assertEquals(new LicenseCount(2, 2, 0), assetContract.getLicenseCount(ctx, "123"));
+
+            ctx.setTransientData(new AddLicensesRequest(
+                    "123", Set.of(new LicenseIdWithSaltRequest("3", "3"))
+            ));
+            assetContract.AddLicenses(ctx);
+            assertEquals(new LicenseCount(3, 3, 0), assetContract.getLicenseCount(ctx, "123"));
+
+            ctx.setTransientData(new RemoveLicensesRequest("123", Set.of("1", "2")));
+            assetContract.RemoveLicenses(ctx);
+            assertEquals(new LicenseCount(1, 1, 0), assetContract.getLicenseCount(ctx, "123"));
+        }
+
+        @Test
+        void test_repairCount() {
+            MockContext ctx = newTestContextWithAuthorized(MockIdentity.ORG1_LO);
+            ctx.setTxId("123");
+            ctx.setTimestamp(Instant.now());
+            ctx.setTransientData(new AddAssetRequest(
+                    "asset1", "2024-01-01 00:00:00", Set.of(new LicenseIdWithSaltRequest("1", "1"))
+            ));
+            assetContract.AddAsset(ctx);
+
+            // without a counter the licenses are counted and updates do not create one
+            ctx.getStub().delPrivateData(ADMINMSP_IPDC, licenseCountKey("123"));
+            ctx.setTransientData(new AddLicensesRequest(
+                    "123", Set.of(new LicenseIdWithSaltRequest("2", "2"))
+            ));
+            assetContract.AddLicenses(ctx);
+            assertEquals(0, ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseCountKey("123")).length);
+            assertEquals(new LicenseCount(2, 2, 0), assetContract.getLicenseCount(ctx, "123"));
+
+            ctx.setTransientData(new AssetIdRequest("123"));
+            String[] licenseIds = assetContract.GetLicenseIds(ctx);
+            assertEquals(Set.of("1", "2"), Set.of(licenseIds));
+
+            // the counts are computed from the licenses, ids that are not licenses of the asset are not counted
+            ctx.setTransientData(new AssetIdAndLicensesRequest("123", Set.of("1", "2", "3")));
+            LicenseCount count = assetContract.RepairLicenseCount(ctx);
+            assertEquals(new LicenseCount(2, 2, 0), count);
+            assertEquals(count, LicenseCount.fromByteArray(
+                    ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseCountKey("123"))));
+        }
+    }
+
     @Nested
     class GetAsset {
         @Test
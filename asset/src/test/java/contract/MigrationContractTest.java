@@ -0,0 +1,114 @@
+package contract;
+
+import contract.request.AccountRequest;
+import contract.request.LicensesRequest;
+import contract.request.MigrateKeysRequest;
+import mock.MockContext;
+import model.*;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static contract.AssetContract.*;
+import static contract.OrderContract.orderKey;
+import static contract.SWIDContract.swidKey;
+import static contract.request.LicensesRequest.allocateRequestKey;
+import static mock.MockContextUtil.newTestContextWithAuthorized;
+import static mock.MockIdentity.ORG1_LO;
+import static mock.MockIdentity.ORG2_TPOC;
+import static model.LicenseKey.allocatedLicenseKey;
+import static model.LicenseKey.licenseKey;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigrationContractTest {
+
+    MigrationContract migrationContract = new MigrationContract();
+    AssetContract assetContract = new AssetContract();
+
+    @Nested
+    class MigrateKeysTest {
+        @Test
+        void test_spKeysAreMigrated() {
+            MockContext ctx = newTestContextWithAuthorized(ORG1_LO);
+
+            // version 1 keys of two assets where one id is a prefix of the other
+            Allocated allocated = new Allocated("1", "Org2MSP", "2025-01-01 00:00:00", "o1");
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "asset:12", new Asset("12", "a", "", "").toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "asset:123", new Asset("123", "b", "", "").toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "license:125", new License("5", "5", null).toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "avail:12:5", new byte[]{0});
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "license:1231", new License("1", "1", allocated).toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "count:12", new LicenseCount(1, 1, 0).toByteArray());
+            Order order = new Order(
+                    "o1", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "123",
+                    1, 1, 0, "2025-01-01 00:00:00", List.of("1")
+            );
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "order:Org2MSPo1", order.toByteArray());
+            LicensesRequest licensesRequest = new LicensesRequest("Org2MSP", "123", "o1", "2025-01-01 00:00:00", List.of("1"));
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, "ALLOCATE:o1", licensesRequest.toByteArray());
+
+            ctx.setTransientData(new AccountRequest("Org1MSP"));
+            String[] keys = migrationContract.GetKeysToMigrate(ctx);
+            assertEquals(
+                    Set.of("asset:12", "asset:123", "license:125", "avail:12:5", "license:1231", "count:12",
+                           "order:Org2MSPo1", "ALLOCATE:o1"),
+                    Set.of(keys)
+            );
+
+            ctx.setTransientData(new MigrateKeysRequest("Org1MSP", MigrationContract.KEY_VERSION, List.of(keys)));
+            migrationContract.MigrateKeys(ctx);
+
+            assertEquals("12", assetContract.getAsset(ctx, "12").getId());
+            assertEquals(new LicenseCount(1, 1, 0), assetContract.getLicenseCount(ctx, "12"));
+            assertEquals(List.of("5"), assetContract.getAvailableLicenseIds(ctx, "12", 10));
+            assertEquals(List.of(), assetContract.getAvailableLicenseIds(ctx, "123", 10));
+            assertEquals(new License("1", "1", allocated), License.fromByteArray(ctx.getStub().getPrivateData(ADMINMSP_IPDC, licenseKey("123", "1"))));
+            assertEquals(order, Order.fromByteArray(ctx.getStub().getPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "o1"))));
+            assertArrayEquals(
+                    licensesRequest.toByteArray(),
+                    ctx.getStub().getPrivateData(ADMINMSP_IPDC, allocateRequestKey(LicensesRequest.ACTION.ALLOCATE, "o1"))
+            );
+            assertEquals(0, ctx.getStub().getPrivateData(ADMINMSP_IPDC, "avail:12:5").length);
+
+            ctx.setTransientData(new AccountRequest("Org1MSP"));
+            assertEquals(0, migrationContract.GetKeysToMigrate(ctx).length);
+        }
+
+        @Test
+        void test_accountKeysAreMigrated() {
+            MockContext ctx = newTestContextWithAuthorized(ORG2_TPOC);
+
+            Allocated allocated = new Allocated("1", "Org2MSP", "2025-01-01 00:00:00", "o1");
+            SWID swid = new SWID("tag", "xml", "o1", "1");
+            ctx.getStub().putPrivateData(accountIPDC("Org2MSP"), "allocated:o11", allocated.toByteArray());
+            ctx.getStub().putPrivateData(accountIPDC("Org2MSP"), "swid:o1:1", swid.toByteArray());
+
+            ctx.setTransientData(new AccountRequest("Org2MSP"));
+            String[] keys = migrationContract.GetKeysToMigrate(ctx);
+            assertEquals(Set.of("allocated:o11", "swid:o1:1"), Set.of(keys));
+
+            ctx.setTransientData(new MigrateKeysRequest("Org2MSP", MigrationContract.KEY_VERSION, List.of(keys)));
+            migrationContract.MigrateKeys(ctx);
+
+            assertEquals(allocated, Allocated.fromByteArray(ctx.getStub().getPrivateData(accountIPDC("Org2MSP"), allocatedLicenseKey("o1", "1"))));
+            SWID migrated = SWID.fromByteArray(ctx.getStub().getPrivateData(accountIPDC("Org2MSP"), swidKey("o1", "1")));
+            assertEquals("tag", migrated.getPrimaryTag());
+            assertEquals("1", migrated.getLicenseId());
+
+            ctx.setTransientData(new AccountRequest("Org2MSP"));
+            assertEquals(0, migrationContract.GetKeysToMigrate(ctx).length);
+        }
+
+        @Test
+        void test_unsupportedVersion_throwsException() {
+            MockContext ctx = newTestContextWithAuthorized(ORG1_LO);
+
+            ctx.setTransientData(new MigrateKeysRequest("Org1MSP", 1, List.of()));
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> migrationContract.MigrateKeys(ctx));
+            assertEquals("cannot migrate keys to version 1, the current key version is 2", e.getMessage());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import contract.request.*;
 import mock.MockContext;
 import model.Allocated;
 import model.License;
+import model.LicenseCount;
 import model.Order;
 import model.Status;
 import org.hyperledger.fabric.shim.ChaincodeException;
@@ -11,12 +12,16 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 import static contract.AssetContract.ADMINMSP_IPDC;
 import static contract.AssetContract.accountIPDC;
+import static contract.AssetContract.licenseCountKey;
+import static contract.OrderContract.expirationKey;
+import static contract.OrderContract.orderByAssetKey;
 import static contract.OrderContract.orderKey;
 import static contract.request.LicensesRequest.allocateRequestKey;
 import static mock.MockContextUtil.newTestContext;
@@ -319,6 +324,25 @@ class OrderContractTest {
             ChaincodeException e = assertThrows(ChaincodeException.class, () -> orderContract.AllocateLicenses(ctx));
             assertEquals("license 1 is already allocated", e.getMessage());
         }
+
+        @Test
+        void test_renewal_movesExpirationIndex() {
+            MockContext ctx = newTestContext(ORG1_ACQ);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+            ctx.setTimestamp(Instant.parse("2025-06-01T00:00:00Z"));
+
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "123"), new Order(
+                    "123", "Org2MSP", Order.Status.RENEWAL_APPROVED, "", "", "", "", "123",
+                    0, 1, 0, "2025-01-01 00:00:00", List.of()
+            ).toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, expirationKey("2025-01-01 00:00:00", "Org2MSP", "123"), new byte[]{0});
+
+            ctx.setTransientData(new AllocateLicensesRequest("123", "Org2MSP", List.of()));
+            LicensesRequest licensesRequest = orderContract.AllocateLicenses(ctx);
+            assertEquals("2026-01-01 00:00:00", licensesRequest.getExpiration());
+            assertEquals(0, ctx.getStub().getPrivateData(ADMINMSP_IPDC, expirationKey("2025-01-01 00:00:00", "Org2MSP", "123")).length);
+            assertEquals(1, ctx.getStub().getPrivateData(ADMINMSP_IPDC, expirationKey("2026-01-01 00:00:00", "Org2MSP", "123")).length);
+        }
     }
 
     @Nested
@@ -385,6 +409,22 @@ class OrderContractTest {
             ChaincodeException e = assertThrows(ChaincodeException.class, () -> orderContract.InitiateReturn(ctx));
             assertEquals("license 1 is not leased by Org2MSP", e.getMessage());
         }
+
+        @Test
+        void test_duplicateLicenses_throwsException() {
+            MockContext ctx = newTestContext(ORG1_ACQ);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+            ctx.getStub().putPrivateData(accountIPDC("Org2MSP"), allocatedLicenseKey("123", "1"),
+                                         new Allocated("1", "Org2MSP", "exp", "123").toByteArray());
+
+            ctx.setClientIdentity(ORG2_TPOC);
+            LicensesRequest licensesRequest = new LicensesRequest("Org2MSP", "12", "123", "exp", List.of("1", "1"));
+            ctx.setTransientData(licensesRequest);
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> orderContract.InitiateReturn(ctx));
+            assertEquals("duplicate licenses are not allowed", e.getMessage());
+            assertEquals(0, ctx.getStub().getPrivateData(ADMINMSP_IPDC, allocateRequestKey(LicensesRequest.ACTION.DEALLOCATE, "123")).length);
+        }
     }
 
     @Nested
@@ -441,6 +481,131 @@ class OrderContractTest {
             ChaincodeException e = assertThrows(ChaincodeException.class, () -> orderContract.DeallocateLicensesFromSP(ctx));
             assertEquals("no deallocate request exists for order 123", e.getMessage());
         }
+
+        @Test
+        void test_duplicateLicenseInRequest_isReturnedOnce() {
+            MockContext ctx = newTestContext(ORG1_ACQ);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "123"), new Order(
+                    "123", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "12",
+                    2, 0, 0, "exp", new ArrayList<>(List.of("1", "2"))
+            ).toByteArray());
+            for (String licenseId : List.of("1", "2")) {
+                ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseKey("12", licenseId), new License(
+                        licenseId, licenseId, new Allocated(licenseId, "Org2MSP", "exp", "123")
+                ).toByteArray());
+            }
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, licenseCountKey("12"), new LicenseCount(2, 0, 2).toByteArray());
+
+            // a return request with a duplicate license, initiated before duplicates were rejected
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, allocateRequestKey(LicensesRequest.ACTION.DEALLOCATE, "123"),
+                                         new LicensesRequest("Org2MSP", "12", "123", "exp", List.of("1", "1")).toByteArray());
+
+            ctx.setTransientData(new OrderIdAndAccountRequest("123", "Org2MSP"));
+            orderContract.DeallocateLicensesFromSP(ctx);
+
+            assertEquals(new LicenseCount(2, 1, 1), assetContract.getLicenseCount(ctx, "12"));
+            Order order = Order.fromByteArray(ctx.getStub().getPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "123")));
+            assertEquals(1, order.getAmount());
+            assertEquals(List.of("2"), order.getLicenses());
+        }
+    }
+
+    @Nested
+    class GetOrdersByAssetTest {
+        @Test
+        void test_deniedAccountIsDeniedForEveryOrder() {
+            MockContext ctx = newTestContext(ORG1_LO);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+            for (int i = 0; i < 10; i++) {
+                for (String account : List.of("Org2MSP", "Org3MSP")) {
+                    ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey(account, String.valueOf(i)), new Order(
+                            String.valueOf(i), account, Order.Status.ALLOCATED, "", "", "", "", "123",
+                            0, 0, 0, "2024-01-01 00:00:00", List.of()
+                    ).toByteArray());
+                    ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderByAssetKey("123", account, String.valueOf(i)), new byte[]{0});
+                }
+            }
+
+            ctx.setClientIdentity(ORG2_ACQ);
+            ctx.setTransientData(new AssetIdRequest("123"));
+            int numInvokes = ctx.getStub().getNumInvokeChaincode();
+            Order[] orders = orderContract.GetOrdersByAsset(ctx);
+            assertEquals(10, orders.length);
+            for (Order order : orders) {
+                assertEquals("Org2MSP", order.getAccount());
+            }
+
+            // the account status is only requested once for the whole scan
+            assertEquals(numInvokes + 1, ctx.getStub().getNumInvokeChaincode());
+        }
+
+        @Test
+        void test_ordersAreReadFromIndex() {
+            MockContext ctx = newTestContext(ORG1_LO);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+            for (String assetId : List.of("123", "456")) {
+                for (String account : List.of("Org2MSP", "Org3MSP")) {
+                    String orderId = assetId + account;
+                    ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey(account, orderId), new Order(
+                            orderId, account, Order.Status.ALLOCATED, "", "", "", "", assetId,
+                            0, 0, 0, "2024-01-01 00:00:00", List.of()
+                    ).toByteArray());
+                    ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderByAssetKey(assetId, account, orderId), new byte[]{0});
+                }
+            }
+
+            // an order that is not indexed is not returned
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "1"), new Order(
+                    "1", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "123",
+                    0, 0, 0, "2024-01-01 00:00:00", List.of()
+            ).toByteArray());
+
+            ctx.setTransientData(new AssetIdRequest("123"));
+            Order[] orders = orderContract.GetOrdersByAsset(ctx);
+            assertEquals(2, orders.length);
+            assertEquals("123Org2MSP", orders[0].getId());
+            assertEquals("123Org3MSP", orders[1].getId());
+
+            ctx.setTransientData(new AssetIdAndAccountRequest("456", "Org3MSP"));
+            orders = orderContract.GetOrdersByAccountAndAsset(ctx);
+            assertEquals(1, orders.length);
+            assertEquals("456Org3MSP", orders[0].getId());
+        }
+    }
+
+    @Nested
+    class OrderIndexRepairTest {
+        @Test
+        void test_unindexedOrdersAreRepaired() {
+            MockContext ctx = newTestContext(ORG1_LO);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+            Order indexed = new Order(
+                    "1", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "123",
+                    0, 0, 0, "2024-01-01 00:00:00", List.of()
+            );
+            Order unindexed = new Order(
+                    "2", "Org3MSP", Order.Status.ALLOCATED, "", "", "", "", "123",
+                    0, 0, 0, "2024-01-01 00:00:00", List.of()
+            );
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "1"), indexed.toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderByAssetKey("123", "Org2MSP", "1"), new byte[]{0});
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org3MSP", "2"), unindexed.toByteArray());
+
+            Order[] repairs = orderContract.GetOrderIndexRepairs(ctx);
+            assertArrayEquals(new Order[]{unindexed}, repairs);
+
+            ctx.setTransientData(new OrdersRequest(List.of(new OrderIdAndAccountRequest("2", "Org3MSP"))));
+            orderContract.RepairOrderIndex(ctx);
+            assertEquals(0, orderContract.GetOrderIndexRepairs(ctx).length);
+
+            ctx.setTransientData(new AssetIdRequest("123"));
+            assertEquals(2, orderContract.GetOrdersByAsset(ctx).length);
+        }
     }
 
     @Nested
@@ -449,12 +614,11 @@ class OrderContractTest {
         void test_ok() {
             MockContext ctx = newTestContext(ORG1_ACQ);
             ctx.getStub().setAccountStatus(Status.AUTHORIZED);
-            ctx.setTimestamp(Instant.now());
+            ctx.setTimestamp(Instant.parse("2025-06-01T00:00:00Z"));
             Order order = new Order(
                     "1", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "",
                     0, 0, 0, "2026-01-01 00:00:00", List.of()
             );
-            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "1234"), order.toByteArray());
 
             Order order2 = new Order(
                     "2", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "",
@@ -465,9 +629,18 @@ class OrderContractTest {
                     "3", "Org3MSP", Order.Status.ALLOCATED, "", "", "", "", "",
                     0, 0, 0, "2024-01-01 00:00:00", List.of()
             );
-            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "1"), order.toByteArray());
-            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "2"), order2.toByteArray());
-            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org3MSP", "3"), order3.toByteArray());
+
+            // an order that has not been allocated is not in the expiration index
+            Order order4 = new Order(
+                    "4", "Org3MSP", Order.Status.QUOTE_REQUESTED, "", "", "", "", "",
+                    0, 0, 0, null, List.of()
+            );
+            for (Order o : List.of(order, order2, order3, order4)) {
+                ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey(o.getAccount(), o.getId()), o.toByteArray());
+                if (o.getExpiration() != null) {
+                    ctx.getStub().putPrivateData(ADMINMSP_IPDC, expirationKey(o.getExpiration(), o.getAccount(), o.getId()), new byte[]{0});
+                }
+            }
 
             Order[] orders = orderContract.GetExpiredOrders(ctx);
             assertEquals(2, orders.length);
@@ -480,5 +653,23 @@ class OrderContractTest {
             assertEquals(1, orders.length);
             assertEquals(order3, orders[0]);
         }
+
+        @Test
+        void test_expiresAtTxTimestamp() {
+            MockContext ctx = newTestContext(ORG1_ACQ);
+            ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+            Order order = new Order(
+                    "1", "Org2MSP", Order.Status.ALLOCATED, "", "", "", "", "",
+                    0, 0, 0, "2025-01-01 00:00:00", List.of()
+            );
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, orderKey("Org2MSP", "1"), order.toByteArray());
+            ctx.getStub().putPrivateData(ADMINMSP_IPDC, expirationKey(order.getExpiration(), "Org2MSP", "1"), new byte[]{0});
+
+            ctx.setTimestamp(Instant.parse("2025-01-01T00:00:00Z"));
+            assertEquals(0, orderContract.GetExpiredOrders(ctx).length);
+
+            ctx.setTimestamp(Instant.parse("2025-01-01T00:00:00.001Z"));
+            assertEquals(1, orderContract.GetExpiredOrders(ctx).length);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package contract.request;
+
+import mock.MockContext;
+import mock.MockIdentity;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestReaderTest {
+
+    static MockContext contextWithRequest(String json) {
+        MockContext ctx = new MockContext(MockIdentity.ORG1_AO);
+        ctx.getStub().setTransientData(Map.of("request", json.getBytes(StandardCharsets.UTF_8)));
+        return ctx;
+    }
+
+    @Test
+    void testAddAssetRequest() {
+        MockContext ctx = new MockContext(MockIdentity.ORG1_AO);
+        Set<LicenseIdWithSaltRequest> licenses = new LinkedHashSet<>();
+        for (int i = 0; i < 100; i++) {
+            licenses.add(new LicenseIdWithSaltRequest(String.valueOf(i), "salt" + i));
+        }
+        ctx.setTransientData(new AddAssetRequest("asset", "2026-01-01 00:00:00", licenses));
+
+        AddAssetRequest req = new AddAssetRequest(ctx);
+        assertEquals("asset", req.getName());
+        assertEquals("2026-01-01 00:00:00", req.getEndDate());
+        assertEquals(100, req.getLicenses().size());
+        int i = 0;
+        for (LicenseIdWithSaltRequest license : req.getLicenses()) {
+            assertEquals(String.valueOf(i), license.getId());
+            assertEquals("salt" + i, license.getSalt());
+            i++;
+        }
+    }
+
+    @Test
+    void testUnknownFieldsAreSkipped() {
+        MockContext ctx = contextWithRequest(
+                "{\"extra\": {\"a\": [1, 2, {\"b\": null}]}, \"orderId\": \"123\", \"account\": \"Org2MSP\"}");
+        OrderIdAndAccountRequest req = new OrderIdAndAccountRequest(ctx);
+        assertEquals("123", req.getOrderId());
+        assertEquals("Org2MSP", req.getAccount());
+    }
+
+    @Test
+    void testMissingFieldThrowsException() {
+        MockContext ctx = contextWithRequest("{\"orderId\": \"123\", \"account\": null}");
+        NullPointerException e = assertThrows(NullPointerException.class, () -> new OrderIdAndAccountRequest(ctx));
+        assertEquals("account cannot be null", e.getMessage());
+
+        MockContext quoteCtx = contextWithRequest("{\"account\": \"Org2MSP\", \"assetId\": \"123\", \"duration\": 1}");
+        IllegalArgumentException iae = assertThrows(IllegalArgumentException.class,
+                                                    () -> new QuoteRequest(quoteCtx, true));
+        assertEquals("amount cannot be 0", iae.getMessage());
+    }
+
+    @Test
+    void testQuoteRequestNumbers() {
+        MockContext ctx = contextWithRequest(
+                "{\"account\": \"Org2MSP\", \"assetId\": \"123\", \"amount\": \"5\", \"duration\": 12}");
+        QuoteRequest req = new QuoteRequest(ctx, true);
+        assertEquals(5, req.getAmount());
+        assertEquals(12, req.getDuration());
+        assertNull(req.getOrderId());
+
+        ctx = contextWithRequest("{\"account\": \"Org2MSP\", \"orderId\": \"123\", \"price\": 99.5}");
+        assertEquals(99.5, new QuoteRequest(ctx, false).getPrice());
+    }
+
+    @Test
+    void testInvalidRequestThrowsException() {
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("[\"123\"]")));
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("{\"assetId\": ")));
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("{\"assetId\": \"a\"")));
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("{\"assetId\": \"a\"} x")));
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("{\"assetId\": \"a\"}{}")));
+        assertThrows(ChaincodeException.class, () -> new AssetIdRequest(contextWithRequest("{assetId: \"a\"}")));
+        assertEquals("a", new AssetIdRequest(contextWithRequest(" {\"assetId\": \"a\"}\n")).getAssetId());
+        assertThrows(ChaincodeException.class,
+                     () -> new QuoteRequest(contextWithRequest("{\"amount\": \"five\"}"), true));
+
+        MockContext ctx = new MockContext(MockIdentity.ORG1_AO);
+        ctx.getStub().setTransientData(Map.of());
+        ChaincodeException e = assertThrows(ChaincodeException.class, () -> new AssetIdRequest(ctx));
+        assertEquals("transient field request is required", e.getMessage());
+    }
+}
@@ -24,6 +24,8 @@ public class MockChaincodeStub implements ChaincodeStub {
     private Instant timestamp;
     private String txId;
     private MockEvent mockEvent;
+    private int numInvokeChaincode;
+    private Runnable txChangeListener = () -> {};
 
     public MockChaincodeStub(MockIdentity initialIdentity) {
         setCreator(initialIdentity);
@@ -41,11 +43,25 @@ public class MockChaincodeStub implements ChaincodeStub {
     }
 
     public void setCreator(MockIdentity mockIdentity) {
-        this.creator = mockIdentity.getBytes();
+        setCreator(mockIdentity.getBytes());
     }
 
     public void setCreator(byte [] creator) {
         this.creator = creator;
+        txChangeListener.run();
+    }
+
+    /**
+     * Register a listener that is called whenever the creator, tx id, or account status changes. Tests reuse the same
+     * stub across what would be separate transactions on a peer, the listener lets a context reset its transaction
+     * scoped state when that happens.
+     */
+    public void setTxChangeListener(Runnable txChangeListener) {
+        this.txChangeListener = txChangeListener;
+    }
+
+    public int getNumInvokeChaincode() {
+        return numInvokeChaincode;
     }
 
     public void setTransientData(Map<String, byte[]> transientData) {
@@ -59,6 +75,7 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     public void setTxId(String txId) {
         this.txId = txId;
+        txChangeListener.run();
     }
 
     public void setAccountStatus(Status status) {
@@ -67,6 +84,7 @@ public class MockChaincodeStub implements ChaincodeStub {
                 "success",
                 status.toString().getBytes()
         );
+        txChangeListener.run();
     }
 
     @Override
@@ -101,6 +119,7 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public Chaincode.Response invokeChaincode(String chaincodeName, List<byte[]> args, String channel) {
+        numInvokeChaincode++;
         return Objects.requireNonNullElseGet(getAccountStatusResponse, () -> new Chaincode.Response(
                 400,
                 "mock invokeChaincode response not set",
@@ -181,12 +200,12 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public CompositeKey createCompositeKey(String objectType, String... attributes) {
-        throw new RuntimeException("not yet implemented");
+        return new CompositeKey(objectType, attributes);
     }
 
     @Override
     public CompositeKey splitCompositeKey(String compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        return CompositeKey.parseCompositeKey(compositeKey);
     }
 
     @Override
@@ -266,14 +285,12 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public QueryResultsIterator<KeyValue> getPrivateDataByRange(String collection, String startKey, String endKey) {
-        Map<String, byte[]> pvtData = privateData.get(collection);
+        // keys from startKey inclusive to endKey exclusive in key order like the peer does, an empty endKey is unbounded
+        TreeMap<String, byte[]> pvtData = new TreeMap<>(privateData.get(collection));
         List<KeyValue> keyValues = new ArrayList<>();
 
-        for (Map.Entry<String, byte[]> e : pvtData.entrySet()) {
-            if (!e.getKey().startsWith(startKey)) {
-                continue;
-            }
-
+        SortedMap<String, byte[]> range = endKey.isEmpty() ? pvtData.tailMap(startKey) : pvtData.subMap(startKey, endKey);
+        for (Map.Entry<String, byte[]> e : range.entrySet()) {
             keyValues.add(new MockKeyValue(e.getKey(), e.getValue()));
         }
 
@@ -282,17 +299,27 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection, String compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        // composite keys are returned in key order like the peer does
+        List<KeyValue> keyValues = new ArrayList<>();
+        for (Map.Entry<String, byte[]> e : new TreeMap<>(privateData.get(collection)).entrySet()) {
+            if (!e.getKey().startsWith(compositeKey)) {
+                continue;
+            }
+
+            keyValues.add(new MockKeyValue(e.getKey(), e.getValue()));
+        }
+
+        return new MockQueryResultsIterator<>(keyValues);
     }
 
     @Override
     public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection, CompositeKey compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        return getPrivateDataByPartialCompositeKey(collection, compositeKey.toString());
     }
 
     @Override
     public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection, String objectType, String... attributes) {
-        throw new RuntimeException("not yet implemented");
+        return getPrivateDataByPartialCompositeKey(collection, new CompositeKey(objectType, attributes));
     }
 
     @Override
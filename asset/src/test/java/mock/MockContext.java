@@ -1,8 +1,8 @@
 package mock;
 
 import com.google.gson.Gson;
+import ngac.DecisionContext;
 import org.hyperledger.fabric.contract.ClientIdentity;
-import org.hyperledger.fabric.contract.Context;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -10,12 +10,13 @@ import java.security.cert.CertificateException;
 import java.time.Instant;
 import java.util.Map;
 
-public class MockContext extends Context {
+public class MockContext extends DecisionContext {
 
     private ClientIdentity clientIdentity;
 
     public MockContext(MockIdentity initialIdentity) {
         super(new MockChaincodeStub(initialIdentity));
+        getStub().setTxChangeListener(this::clearDecisions);
         setClientIdentity(initialIdentity);
     }
 
@@ -33,6 +33,13 @@ class DateFormatterTest {
         String formattedNowStr = DATE_TIME_FORMATTER.format(now);
         Instant formattedNow = LocalDateTime.parse(formattedNowStr, DATE_TIME_FORMATTER).toInstant(ZoneOffset.UTC);
         assertEquals(formattedNow, DateFormatter.toInstant(formattedNowStr));
+        assertEquals(formattedNow, DateFormatter.toInstant(formattedNow.toString()));
+    }
+
+    @Test
+    void testToSortable() {
+        assertEquals("20260102030405", toSortable("2026-01-02 03:04:05"));
+        assertTrue(toSortable("2025-12-31 23:59:59").compareTo(toSortable("2026-01-01 00:00:00")) < 0);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package model;
+
+import contract.request.LicensesRequest;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCodecTest {
+
+    static final String LICENSE_ID = "8f8b9d3e-2a4c-4c43-a2f1-5b8f6d3c2e10";
+    static final String SALT = "d1b7c5e2a9f04f6a8e3b2c1d0f9e8a7b";
+
+    static Allocated allocated() {
+        return new Allocated(LICENSE_ID, "Org2MSP", "2026-10-18 00:00:00", "order1");
+    }
+
+    static Order order() {
+        return new Order("order1", "Org2MSP", Order.Status.ALLOCATED, "2026-01-01 00:00:00", "2026-01-02 00:00:00",
+                         "2026-01-03 00:00:00", null, "asset1", 2, 12, 99.5, "2027-01-03 00:00:00",
+                         new ArrayList<>(List.of("1", "2")));
+    }
+
+    @Nested
+    class RoundTripTest {
+        @Test
+        void testAsset() {
+            Asset asset = new Asset("asset1", "name", "2026-01-01 00:00:00", "2027-01-01 00:00:00");
+            assertEquals(asset, Asset.fromByteArray(asset.toByteArray()));
+        }
+
+        @Test
+        void testLicense() {
+            License license = new License(LICENSE_ID, SALT, allocated());
+            License decoded = License.fromByteArray(license.toByteArray());
+            assertEquals(license, decoded);
+            assertEquals(SALT, decoded.getSalt());
+
+            license = new License(LICENSE_ID, SALT, null);
+            assertEquals(license, License.fromByteArray(license.toByteArray()));
+        }
+
+        @Test
+        void testAllocated() {
+            assertEquals(allocated(), Allocated.fromByteArray(allocated().toByteArray()));
+        }
+
+        @Test
+        void testOrder() {
+            assertEquals(order(), Order.fromByteArray(order().toByteArray()));
+
+            Order order = new Order("order1", "Org2MSP", null, null, null, null, null, null, -1, 0, 0, null, null);
+            assertEquals(order, Order.fromByteArray(order.toByteArray()));
+        }
+
+        @Test
+        void testSWID() {
+            SWID swid = new SWID("tag", "<xml/>", "order1", LICENSE_ID);
+            SWID decoded = SWID.fromByteArray(swid.toByteArray());
+            assertEquals("tag", decoded.getPrimaryTag());
+            assertEquals("<xml/>", decoded.getXml());
+            assertEquals("order1", decoded.getOrderId());
+            assertEquals(LICENSE_ID, decoded.getLicenseId());
+        }
+
+        @Test
+        void testLicenseCount() {
+            LicenseCount count = new LicenseCount(200000, 199950, 50);
+            assertEquals(count, LicenseCount.fromByteArray(count.toByteArray()));
+        }
+
+        @Test
+        void testLicensesRequest() {
+            LicensesRequest req = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                      List.of("1", "2"));
+            LicensesRequest decoded = LicensesRequest.fromByteArray(req.toByteArray());
+            assertEquals(req, decoded);
+            assertEquals("Org2MSP", decoded.getAccount());
+            assertEquals("asset1", decoded.getAssetId());
+        }
+    }
+
+    @Nested
+    class LicenseFlagsTest {
+        @Test
+        void testAllocatedLicense() {
+            byte[] bytes = new License(LICENSE_ID, SALT, allocated()).toByteArray();
+            assertTrue(ModelCodec.isAllocatedLicense(bytes));
+        }
+
+        @Test
+        void testAvailableLicense() {
+            byte[] bytes = new License(LICENSE_ID, SALT, null).toByteArray();
+            assertFalse(ModelCodec.isAllocatedLicense(bytes));
+        }
+
+        @Test
+        void testLicensesWithoutFlags() {
+            License license = new License(LICENSE_ID, SALT, allocated());
+            byte[] legacy = SerializationUtils.serialize(license);
+            assertTrue(ModelCodec.isAllocatedLicense(legacy));
+
+            // version 1 of the binary format
+            byte[] v1 = {ModelCodec.MAGIC, 1, ModelCodec.LICENSE_TYPE, 3, 'i', 'd', 3, 's', 'a', 0};
+            assertEquals(new License("id", "sa", null), License.fromByteArray(v1));
+            assertFalse(ModelCodec.isAllocatedLicense(v1));
+        }
+    }
+
+    @Nested
+    class DigestTest {
+        @Test
+        void testDigestIsHashOfEncoding() {
+            LicensesRequest req = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                      List.of("1", "2", "3"));
+            assertArrayEquals(SHA256.hashBytesToBytes(req.toByteArray()), ModelCodec.digest(req));
+            assertTrue(req.matchesHash(SHA256.hashBytesToBytes(req.toByteArray())));
+
+            req = new LicensesRequest("Org2MSP", null, "order1", null, null);
+            assertArrayEquals(SHA256.hashBytesToBytes(req.toByteArray()), ModelCodec.digest(req));
+        }
+
+        @Test
+        void testDigestDependsOnLicenseOrder() {
+            LicensesRequest req = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                      List.of("1", "2"));
+            LicensesRequest reordered = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                            List.of("2", "1"));
+            assertFalse(reordered.matchesHash(ModelCodec.digest(req)));
+        }
+
+        @Test
+        void testRequestFromEarlierVersionMatches() {
+            LicensesRequest req = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                      List.of("1", "2"));
+
+            // a request stored by format version 1 only differs in the version byte
+            byte[] v1 = req.toByteArray();
+            v1[1] = 1;
+            assertEquals(req, LicensesRequest.fromByteArray(v1));
+            assertTrue(req.matchesHash(SHA256.hashBytesToBytes(v1)));
+
+            byte[] unsupported = req.toByteArray();
+            unsupported[1] = ModelCodec.VERSION + 1;
+            assertFalse(req.matchesHash(SHA256.hashBytesToBytes(unsupported)));
+        }
+
+        @Test
+        void testJavaSerializedRequestHashMatches() {
+            LicensesRequest req = new LicensesRequest("Org2MSP", "asset1", "order1", "2027-01-03 00:00:00",
+                                                      List.of("1", "2"));
+            assertTrue(req.matchesHash(SHA256.hashBytesToBytes(SerializationUtils.serialize(req))));
+        }
+    }
+
+    @Nested
+    class LegacyTest {
+        @Test
+        void testJavaSerializedValuesAreDecoded() {
+            License license = new License(LICENSE_ID, SALT, allocated());
+            assertEquals(license, License.fromByteArray(SerializationUtils.serialize(license)));
+            assertEquals(order(), Order.fromByteArray(SerializationUtils.serialize(order())));
+        }
+
+        @Test
+        void testBinaryIsSmaller() {
+            License license = new License(LICENSE_ID, SALT, allocated());
+            assertTrue(license.toByteArray().length * 2 < SerializationUtils.serialize(license).length);
+            assertTrue(order().toByteArray().length * 2 < SerializationUtils.serialize(order()).length);
+        }
+
+        @Test
+        void testWrongTypeThrowsException() {
+            assertThrows(Exception.class, () -> Order.fromByteArray(allocated().toByteArray()));
+        }
+    }
+}
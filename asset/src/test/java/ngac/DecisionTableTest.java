@@ -0,0 +1,63 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
+import gov.nist.csd.pm.pap.query.UserContext;
+import model.Status;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ngac.PolicyBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionTableTest {
+
+    private static final List<String> ACCOUNTS = List.of(ADMINMSP, "Org2MSP", "Org3MSP");
+
+    @Test
+    void testAssetTableMatchesPolicyGraph() throws PMException {
+        for (String role : DecisionTable.ROLES) {
+            for (Status status : Status.values()) {
+                for (String account : ACCOUNTS) {
+                    DecisionUser user = new DecisionUser(new UserContext("user:" + account), account, role, status);
+                    AccessRightSet expected = buildPolicyForAssetDecision(user)
+                            .query()
+                            .access()
+                            .computePrivileges(user.getUserCtx(), ASSET_TARGET);
+
+                    assertEquals(expected, DecisionTable.assetPrivileges(role, status, user.isAdmin()),
+                                 role + " " + status + " " + account);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAccountTableMatchesPolicyGraph() throws PMException {
+        for (String role : DecisionTable.ROLES) {
+            for (Status status : Status.values()) {
+                for (String account : ACCOUNTS) {
+                    for (String target : ACCOUNTS) {
+                        DecisionUser user = new DecisionUser(new UserContext("user:" + account), account, role, status);
+                        AccessRightSet expected = buildPolicyForAccountDecision(user, target)
+                                .query()
+                                .access()
+                                .computePrivileges(user.getUserCtx(), accountTarget(target));
+
+                        assertEquals(expected, DecisionTable.accountPrivileges(role, status, user.isAdmin(), account.equals(target)),
+                                     role + " " + status + " " + account + " -> " + target);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnknownRole() {
+        ChaincodeException e = assertThrows(ChaincodeException.class,
+                                            () -> DecisionTable.assetPrivileges("unknown", Status.AUTHORIZED, false));
+        assertEquals("invalid role unknown", e.getMessage());
+    }
+}
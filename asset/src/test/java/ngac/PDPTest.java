@@ -5,9 +5,11 @@ import mock.MockContext;
 import mock.MockIdentity;
 import model.LicenseWithExpiration;
 import model.Status;
+import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -489,4 +491,69 @@ class PDPTest {
         ctx.getStub().setAccountStatus(Status.UNAUTHORIZED);
         assertThrows(UnauthorizedException.class, () -> PDP.canWriteSWID(ctx, "Org2MSP"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void filterAccounts() {
+        MockContext ctx = newTestContext(MockIdentity.ORG2_ACQ);
+        ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+        assertEquals(Set.of("Org2MSP"),
+                     PDP.filterAccounts(ctx, List.of("Org2MSP", "Org3MSP", "Org2MSP", "Org1MSP"), PolicyBuilder.READ_ORDER));
+        assertEquals(Set.of(), PDP.filterAccounts(ctx, List.of("Org2MSP", "Org3MSP"), PolicyBuilder.INITIATE_ORDER));
+
+        ctx.setClientIdentity(MockIdentity.ORG1_ACQ);
+        assertEquals(Set.of("Org2MSP", "Org3MSP"),
+                     PDP.filterAccounts(ctx, List.of("Org2MSP", "Org3MSP"), PolicyBuilder.READ_ORDER));
+
+        ctx.getStub().setAccountStatus(Status.UNAUTHORIZED);
+        assertEquals(Set.of(), PDP.filterAccounts(ctx, List.of("Org2MSP", "Org3MSP"), PolicyBuilder.READ_ORDER));
+    }
+
+    @Test
+    void filterAccountsResolvesClientOnce() {
+        MockContext ctx = newTestContext(MockIdentity.ORG1_ACQ);
+        ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+        // without a decision context every client resolution invokes the authorization chaincode
+        Context plainCtx = new Context(ctx.getStub());
+        int numInvokes = ctx.getStub().getNumInvokeChaincode();
+        assertEquals(Set.of("Org1MSP", "Org2MSP", "Org3MSP"),
+                     PDP.filterAccounts(plainCtx, List.of("Org1MSP", "Org2MSP", "Org3MSP"), PolicyBuilder.READ_LICENSE));
+        assertEquals(numInvokes + 1, ctx.getStub().getNumInvokeChaincode());
+
+        assertEquals(Set.of(), PDP.filterAccounts(plainCtx, List.of(), PolicyBuilder.READ_LICENSE));
+        assertEquals(numInvokes + 1, ctx.getStub().getNumInvokeChaincode());
+    }
+
+    @Test
+    void accountStatusIsRequestedOncePerTransaction() {
+        MockContext ctx = newTestContext(MockIdentity.ORG2_TPOC);
+        ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+        int numInvokes = ctx.getStub().getNumInvokeChaincode();
+        long avoided = PolicyBuilder.getAvoidedStatusLookups();
+        assertDoesNotThrow(() -> PDP.canReadAssets(ctx));
+        assertDoesNotThrow(() -> PDP.canInitiateOrder(ctx, "Org2MSP"));
+        assertDoesNotThrow(() -> PDP.canWriteSWID(ctx, "Org2MSP"));
+        assertThrows(UnauthorizedException.class, () -> PDP.canReadSWID(ctx, "Org3MSP"));
+        assertEquals(numInvokes + 1, ctx.getStub().getNumInvokeChaincode());
+        assertTrue(PolicyBuilder.getAvoidedStatusLookups() >= avoided + 2);
+    }
+
+    @Test
+    void decisionsAreRememberedForTheTransaction() {
+        MockContext ctx = newTestContext(MockIdentity.ORG2_ACQ);
+        ctx.getStub().setAccountStatus(Status.AUTHORIZED);
+
+        int numInvokes = ctx.getStub().getNumInvokeChaincode();
+        for (int i = 0; i < 5; i++) {
+            assertThrows(UnauthorizedException.class, () -> PDP.canReadOrder(ctx, "Org3MSP"));
+            assertDoesNotThrow(() -> PDP.canReadOrder(ctx, "Org2MSP"));
+            assertThrows(UnauthorizedException.class, () -> PDP.canInitiateOrder(ctx, "Org2MSP"));
+        }
+        assertEquals(numInvokes + 1, ctx.getStub().getNumInvokeChaincode());
+
+        // a new transaction computes the decision again
+        ctx.getStub().setAccountStatus(Status.UNAUTHORIZED);
+        assertThrows(UnauthorizedException.class, () -> PDP.canReadOrder(ctx, "Org2MSP"));
+    }
+}
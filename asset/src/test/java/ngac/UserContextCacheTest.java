@@ -0,0 +1,42 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.query.UserContext;
+import mock.MockContext;
+import mock.MockIdentity;
+import org.junit.jupiter.api.Test;
+
+import static mock.MockContextUtil.newTestContext;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserContextCacheTest {
+
+    @Test
+    void testSameCertificateReturnsCachedUser() {
+        UserContextCache cache = new UserContextCache(10);
+        MockContext ctx = newTestContext(MockIdentity.ORG1_ACQ);
+
+        UserContext first = cache.get(ctx.getClientIdentity());
+        UserContext second = cache.get(ctx.getClientIdentity());
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+
+        ctx.setClientIdentity(MockIdentity.ORG2_ACQ);
+        UserContext other = cache.get(ctx.getClientIdentity());
+        assertNotEquals(first.getUser(), other.getUser());
+        assertTrue(other.getUser().endsWith(":Org2MSP"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        UserContextCache cache = new UserContextCache(2);
+        MockContext ctx = newTestContext(MockIdentity.ORG1_ACQ);
+        for (MockIdentity identity : MockIdentity.values()) {
+            ctx.setClientIdentity(identity);
+            UserContext userCtx = cache.get(ctx.getClientIdentity());
+            assertEquals(PolicyBuilder.getUserContextFromCID(ctx.getClientIdentity()).getUser(), userCtx.getUser());
+        }
+
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,81 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.pml.context.ExecutionContext;
+import gov.nist.csd.pm.pap.pml.executable.operation.PMLOperation;
+import gov.nist.csd.pm.pap.query.UserContext;
+import mock.MockContext;
+import mock.MockIdentity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static mock.MockContextUtil.newTestMockContextWithAccounts;
+import static ngac.BlossomPDP.getPAPState;
+import static ngac.BlossomPDP.getUserCtxFromRequest;
+import static ngac.BlossomPDP.savePAPState;
+
+/**
+ * Benchmarks for the authorization chaincode PDP against a stored policy with the given number of member accounts.
+ * Org1MSP, Org2MSP and Org3MSP are always members, the remaining accounts have signed the MOU and are authorized.
+ *
+ * Run with: gradle jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlossomPDPBenchmark {
+
+    @Param({"3", "50", "500", "5000"})
+    public int accounts;
+
+    private BlossomPDP pdp;
+    private MockContext ctx;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        pdp = new BlossomPDP();
+        ctx = newTestMockContextWithAccounts(MockIdentity.ORG1_AO);
+
+        UserContext userCtx = getUserCtxFromRequest(ctx);
+        PAP pap = getPAPState(ctx, userCtx);
+        for (int i = 3; i < accounts; i++) {
+            String account = "Member" + i + "MSP";
+            executeOperation(pap, userCtx, "signMOU", Map.of("accountId", account));
+            executeOperation(pap, userCtx, "updateAccountStatus", Map.of("accountId", account, "status", "AUTHORIZED"));
+        }
+
+        savePAPState(ctx, pap);
+
+        ctx.setClientIdentity(MockIdentity.ORG2_AO);
+    }
+
+    @Benchmark
+    public void readATO() {
+        pdp.readATO(ctx, "Org3MSP");
+    }
+
+    @Benchmark
+    public void vote() {
+        pdp.vote(ctx, "Org3MSP");
+    }
+
+    @Benchmark
+    public void initiateAndCertifyVote() {
+        // certifying a failed vote undoes the initiateVote changes, so every invocation starts from the same policy
+        pdp.initiateVote(ctx, "Org3MSP");
+        pdp.certifyVote(ctx, "Org3MSP", "AUTHORIZED", false);
+    }
+
+    private static void executeOperation(PAP pap, UserContext userCtx, String name, Map<String, Object> operands)
+            throws PMException {
+        PMLOperation pmlOp = (PMLOperation) pap.query().operations().getAdminOperation(name);
+        pmlOp.setCtx(new ExecutionContext(userCtx, pap));
+        pmlOp.withOperands(operands).execute(pap);
+    }
+}
@@ -49,8 +49,7 @@ public class BootstrapContract implements ContractInterface {
     @Transaction()
     public void Bootstrap(Context ctx) {
         // check if this has been called already by checking if the policy has already been created
-        byte[] policyBytes = ctx.getStub().getState("policy");
-        if (policyBytes.length > 0) {
+        if (BlossomPDP.isPolicyInitialized(ctx)) {
             throw new ChaincodeException("Bootstrap already called");
         }
 
@@ -66,6 +65,37 @@ public class BootstrapContract implements ContractInterface {
         ctx.getStub().putState(accountKey(mspid), SerializationUtils.serialize(account));
     }
 
+    /**
+     * Convert an NGAC policy stored by an earlier version of this chaincode as a single JSON value into the individual
+     * records used to store the policy now. Policies that have not been migrated can still be used, but every change
+     * to them rewrites the entire policy.
+     *
+     * NGAC: Only an Authorizing Official from the ADMINMSP can call this function.
+     *
+     * @param ctx Chaincode context which stores the requesting CID and exposes world state functions.
+     * @throws ChaincodeException If the policy has not been initialized or has already been migrated.
+     */
+    @Transaction()
+    public void MigratePolicy(Context ctx) {
+        new BlossomPDP().migratePolicy(ctx);
+    }
+
+    /**
+     * Set the format the NGAC policy records are stored in, BINARY (the default) or SERIALIZED, and rewrite the stored
+     * records in that format. Records are only written in the format that is set, but records in either format can be
+     * read.
+     *
+     * NGAC: Only an Authorizing Official from the ADMINMSP can call this function.
+     *
+     * @param ctx Chaincode context which stores the requesting CID and exposes world state functions.
+     * @param format The record format.
+     * @throws ChaincodeException If the format is unknown or the policy has not been migrated.
+     */
+    @Transaction()
+    public void SetPolicyFormat(Context ctx, String format) {
+        new BlossomPDP().setPolicyFormat(ctx, format);
+    }
+
     @Transaction
     public String Test(Context ctx) {
         return "hello blossom";
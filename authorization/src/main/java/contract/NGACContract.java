@@ -1,6 +1,8 @@
 package contract;
 
+import model.PhaseMetrics;
 import ngac.BlossomPDP;
+import ngac.DecisionMetrics;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
 import org.hyperledger.fabric.contract.annotation.Contract;
@@ -36,4 +38,14 @@ public class NGACContract implements ContractInterface {
 		return new BlossomPDP().getAllPrivileges();
 	}
 
+	/**
+	 * Get the latency metrics of the phases of authorization decisions made by this chaincode process since it started.
+	 * The metrics are local to the peer that evaluates the transaction.
+	 * @return The metrics for each decision phase.
+	 */
+	@Transaction(intent = Transaction.TYPE.EVALUATE)
+	public PhaseMetrics[] GetDecisionMetrics(Context ctx) {
+		return DecisionMetrics.snapshot();
+	}
+
 }
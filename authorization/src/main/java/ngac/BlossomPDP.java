@@ -1,42 +1,29 @@
 package ngac;
 
-import gov.nist.csd.pm.impl.memory.pap.MemoryPAP;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pap.exception.PMException;
 import gov.nist.csd.pm.pap.graph.node.Node;
 import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
-import gov.nist.csd.pm.pap.pml.value.StringValue;
 import gov.nist.csd.pm.pap.query.UserContext;
 import gov.nist.csd.pm.pap.query.explain.Explain;
-import gov.nist.csd.pm.pap.serialization.json.JSONDeserializer;
-import gov.nist.csd.pm.pap.serialization.json.JSONSerializer;
-import gov.nist.csd.pm.pap.serialization.pml.PMLDeserializer;
 import gov.nist.csd.pm.pdp.AdminAdjudicationResponse;
 import gov.nist.csd.pm.pdp.Decision;
 import gov.nist.csd.pm.pdp.PDP;
 import gov.nist.csd.pm.pdp.exception.UnauthorizedException;
-import org.apache.commons.io.IOUtils;
-import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
-import org.bouncycastle.asn1.x500.RDN;
-import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.asn1.x500.style.BCStyle;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.hyperledger.fabric.Logger;
-import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.security.cert.CertificateEncodingException;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 
 import static gov.nist.csd.pm.pap.graph.node.NodeType.UA;
+import static ngac.DecisionMetrics.Phase.*;
 
 /**
  * Provides methods for checking access to Blossom resources and updating the policy as needed.
@@ -46,10 +33,12 @@ public class BlossomPDP {
     // MODIFY VALUE TO MSPID OF ADMIN MEMBER OF NETWORK
     public static final String ADMINMSP = "Org1MSP";
 
-    private static final String BLOSSOM_TARGET = "blossom_target";
+    static final String BLOSSOM_TARGET = "blossom_target";
+    static final String AUTHORIZING_OFFICIAL = "Authorizing Official";
     private static final String BLOSSOM_ROLE_ATTR = "blossom.role";
-    private static final String AUTHORIZING_OFFICIAL = "Authorizing Official";
     private static final Logger log = Logger.getLogger(BlossomPDP.class);
+    private static final UserContextCache USER_CONTEXT_CACHE = new UserContextCache(4096);
+    private static final PolicyCache POLICY_CACHE = new PolicyCache();
 
     public BlossomPDP() {
 
@@ -76,8 +65,8 @@ public class BlossomPDP {
     }
 
     /**
-     * Initialize the NGAC policy with the given PML string. The requesting user needs the "bootstrap" permission on the
-     * blossom target.
+     * Initialize the NGAC policy from policy.pml, as compiled at build time by {@link PolicyCompiler}. The requesting
+     * user needs the "bootstrap" permission on the blossom target.
      *
      * @param ctx               Chaincode context.
      *
@@ -88,26 +77,17 @@ public class BlossomPDP {
     public void bootstrap(Context ctx) throws IOException {
         UserContext userCtx = getUserCtxFromRequest(ctx);
 
-        // get the policy file defined in PML
-        InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream("policy.pml");
-        if (resourceAsStream == null) {
-            throw new ChaincodeException("could not read policy file");
-        }
-
-        String pml = IOUtils.toString(resourceAsStream, StandardCharsets.UTF_8);
-
         try {
-            // create a new PAP object to compile and execute the PML
-            PAP pap = new MemoryPAP();
-            pap.setPMLConstants(Map.of("ADMINMSP", new StringValue(ADMINMSP)));
-            pap.deserialize(userCtx, pml, new PMLDeserializer());
+            // load the policy compiled from policy.pml at build time
+            PAP pap = PolicyCompiler.loadBootstrapPolicy();
 
             // decide if user can bootstrap blossom
             prepareDecision(ctx, userCtx, pap, true);
             decide(pap, userCtx, BLOSSOM_TARGET, "bootstrap", "cid is not authorized to bootstrap Blossom");
 
             // write policy to world state and ledger
-            savePolicy(ctx, pap, userCtx);
+            pap.modify().graph().deleteNode(userCtx.getUser());
+            PolicyStore.create(ctx.getStub(), pap);
         } catch (PMException e) {
             throw new ChaincodeException(e);
         }
@@ -238,15 +218,25 @@ public class BlossomPDP {
         UserContext userCtx = getUserCtxFromRequest(ctx);
 
         try {
-            // load the policy from the world state
-            PAP pap = getPAPState(ctx, userCtx);
+            // load a private copy of the policy, always from the world state so every endorser has the same read set
+            PolicyStore.StoredPolicy policy = PolicyStore.read(ctx.getStub());
+            PAP pap = policy.toPAP(userCtx);
 
             // prepare the decision by assigning the user to their attributes in the policy
             prepareDecision(ctx, userCtx, pap, assignToAccountUA);
 
             // execute the signMOU operation which will check for privileges before executing
+            long start = System.nanoTime();
             PDP pdp = new PDP(pap);
             AdminAdjudicationResponse response = pdp.adjudicateAdminOperation(userCtx, opName, operands);
+            DecisionMetrics.record(COMPUTE_PRIVILEGES, start);
+            DecisionMetrics.decisionComplete();
+
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("admin operation user=%s operation=%s decision=%s", userCtx.getUser(), opName,
+                                       response.getDecision()));
+            }
+
             if (response.getDecision() == Decision.DENY) {
                 throw new PMException(unauthMessage);
             }
@@ -254,130 +244,238 @@ public class BlossomPDP {
             // delete the user node from the graph before saving policy state
             pap.modify().graph().deleteNode(userCtx.getUser());
 
-            // save the policy
-            savePolicy(ctx, pap, userCtx);
+            // save the records that changed
+            PolicyStore.save(ctx.getStub(), policy, pap);
         } catch (PMException e) {
             throw new ChaincodeException(e.getMessage());
         }
     }
 
     private void prepareDecision(Context ctx, UserContext userCtx, PAP pap, boolean assignToAccountUA) {
+        long start = System.nanoTime();
         try {
             String mspid = ctx.getClientIdentity().getMSPID();
             String role = ctx.getClientIdentity().getAttributeValue(BLOSSOM_ROLE_ATTR);
-            String accountUA = accountUsersNodeName(mspid);
 
-            if (!pap.query().graph().nodeExists(role)) {
-                throw new ChaincodeException("unknown user role: " + role);
-            } else if (assignToAccountUA && !pap.query().graph().nodeExists(accountUA)) {
-                throw new ChaincodeException("account " + mspid + " does not exist");
-            }
+            checkDecisionNodes(pap, mspid, role, assignToAccountUA);
 
             // create the calling user in the graph and assign to appropriate attributes
-            pap.modify().graph().createUser(userCtx.getUser(), List.of(role));
-
-            // if account UA exists assign the user to it
-            if (pap.query().graph().nodeExists(accountUA)) {
-                pap.modify().graph().assign(userCtx.getUser(), List.of(accountUA));
-            }
-
-            // check if user is blossom admin
-            if (ADMINMSP.equals(mspid) && role.equals(AUTHORIZING_OFFICIAL)) {
-                pap.modify().graph().assign(userCtx.getUser(), List.of("Blossom Admin"));
-            }
+            addUser(pap, userCtx.getUser(), mspid, role);
         } catch (PMException e) {
             throw new ChaincodeException(e);
+        } finally {
+            DecisionMetrics.record(GRAPH_BUILD, start);
+        }
+    }
+
+    private void checkDecisionNodes(PAP pap, String mspid, String role, boolean assignToAccountUA) throws PMException {
+        if (!pap.query().graph().nodeExists(role)) {
+            throw new ChaincodeException("unknown user role: " + role);
+        } else if (assignToAccountUA && !pap.query().graph().nodeExists(accountUsersNodeName(mspid))) {
+            throw new ChaincodeException("account " + mspid + " does not exist");
+        }
+    }
+
+    static void addUser(PAP pap, String user, String mspid, String role) throws PMException {
+        String accountUA = accountUsersNodeName(mspid);
+
+        pap.modify().graph().createUser(user, List.of(role));
+
+        // if account UA exists assign the user to it
+        if (pap.query().graph().nodeExists(accountUA)) {
+            pap.modify().graph().assign(user, List.of(accountUA));
+        }
+
+        // check if user is blossom admin
+        if (ADMINMSP.equals(mspid) && role.equals(AUTHORIZING_OFFICIAL)) {
+            pap.modify().graph().assign(user, List.of("Blossom Admin"));
         }
     }
 
     private void decide(Context ctx, UserContext userCtx, String target, String ar, boolean assignToAccountUA, String unauthMessage) {
-        PAP pap = getPAPState(ctx, userCtx);
+        String mspid = ctx.getClientIdentity().getMSPID();
+        String role = ctx.getClientIdentity().getAttributeValue(BLOSSOM_ROLE_ATTR);
+
+        // the snapshots and the cached policy are both validated against the policy version key
+        byte[] versionKey = ctx.getStub().getState(PolicyStore.VERSION_KEY);
+
+        // use the account's capability snapshot if it is current
+        if (AUTHORIZING_OFFICIAL.equals(role)) {
+            long start = System.nanoTime();
+            Set<String> privileges = CapabilitySnapshots.lookup(ctx.getStub(), mspid, target, versionKey);
+            if (privileges != null) {
+                DecisionMetrics.record(COMPUTE_PRIVILEGES, start);
+                DecisionMetrics.decisionComplete();
 
-        prepareDecision(ctx, userCtx, pap, assignToAccountUA);
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine(String.format("snapshot decision user=%s target=%s privileges=%s", userCtx.getUser(),
+                                           target, privileges));
+                }
 
-        decide(pap, userCtx, target, ar, unauthMessage);
+                if (!privileges.contains(ar)) {
+                    throw new ChaincodeException(unauthMessage);
+                }
+
+                return;
+            }
+        }
+
+        // the decision is made for the profile user with the same attributes as the requesting user, the profile is
+        // added to the cached policy once and the cached policy is not otherwise modified
+        UserContext profile = new UserContext(profileUserName(mspid, role));
+        POLICY_CACHE.apply(
+                ctx.getStub(),
+                versionKey,
+                userCtx,
+                profile.getUser(),
+                pap -> {
+                    long start = System.nanoTime();
+                    checkDecisionNodes(pap, mspid, role, false);
+                    addUser(pap, profile.getUser(), mspid, role);
+                    DecisionMetrics.record(GRAPH_BUILD, start);
+                },
+                pap -> {
+                    try {
+                        checkDecisionNodes(pap, mspid, role, assignToAccountUA);
+                    } catch (PMException e) {
+                        throw new ChaincodeException(e);
+                    }
+
+                    decide(pap, profile, target, ar, unauthMessage);
+                    return null;
+                }
+        );
     }
 
     private void decide(PAP pap, UserContext userCtx, String target, String ar, String unauthMessage) {
         try {
+            long start = System.nanoTime();
             AccessRightSet accessRights = pap.query().access().computePrivileges(userCtx, target);
+            DecisionMetrics.record(COMPUTE_PRIVILEGES, start);
+            DecisionMetrics.decisionComplete();
 
-            log.info("user " + userCtx.getUser() + " has privs " + accessRights + " on " + target);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("decision user=%s target=%s privileges=%s", userCtx.getUser(), target, accessRights));
+            }
 
             boolean result = accessRights.contains(ar);
             if (!result) {
                 throw new ChaincodeException(unauthMessage);
             }
-
-            pap.modify().graph().deleteNode(userCtx.getUser());
         } catch (PMException e) {
             throw new ChaincodeException(e);
         }
     }
 
     /**
-     * Load the policy from the context into memory.
+     * Load the policy from the context into memory. The returned policy is a private copy that the caller is free to
+     * modify, read only decisions should use the cached policy instead.
      * @param ctx The Fabric context.
      * @param userCtx The user context representing the cid.
      * @return The policy in memory.
      * @throws ChaincodeException If the cid is unauthorized or there is an error checking if the cid is unauthorized.
      */
     public static PAP getPAPState(Context ctx, UserContext userCtx) {
-        byte[] policy = ctx.getStub().getState("policy");
-        if (policy.length == 0) {
-            throw new ChaincodeException("ngac policy has not been initialized");
+        return PolicyStore.read(ctx.getStub()).toPAP(userCtx);
+    }
+
+    /**
+     * Save the given policy to the context, writing only the parts of the policy that differ from the stored policy.
+     * @param ctx The Fabric context.
+     * @param pap The policy to save.
+     * @throws ChaincodeException If the policy has not been initialized or there is an error saving the policy.
+     */
+    public static void savePAPState(Context ctx, PAP pap) {
+        PolicyStore.StoredPolicy policy = PolicyStore.read(ctx.getStub());
+
+        try {
+            PolicyStore.save(ctx.getStub(), policy, pap);
+        } catch (PMException e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    /**
+     * Check if the NGAC policy has been initialized.
+     * @param ctx The Fabric context.
+     * @return True if the policy has been written to the world state.
+     */
+    public static boolean isPolicyInitialized(Context ctx) {
+        return PolicyStore.exists(ctx.getStub());
+    }
+
+    /**
+     * Convert a policy stored as a single JSON value by an earlier version of this chaincode into individual records.
+     * The requesting user needs the "bootstrap" permission on the blossom target.
+     *
+     * @param ctx Chaincode context.
+     * @throws ChaincodeException If the cid is unauthorized or the policy has already been migrated.
+     */
+    public void migratePolicy(Context ctx) {
+        UserContext userCtx = getUserCtxFromRequest(ctx);
+
+        decide(ctx, userCtx, BLOSSOM_TARGET, "bootstrap", true, "cid is not authorized to migrate the Blossom policy");
+
+        try {
+            PolicyStore.migrate(ctx.getStub(), userCtx);
+        } catch (PMException e) {
+            throw new ChaincodeException(e);
         }
+    }
+
+    /**
+     * Set the format the NGAC policy records are written in and rewrite the stored records in that format. Every peer
+     * reads the format from the world state, so endorsements agree. The requesting user needs the "bootstrap" permission
+     * on the blossom target.
+     *
+     * @param ctx    Chaincode context.
+     * @param format BINARY or SERIALIZED.
+     * @throws ChaincodeException If the cid is unauthorized, the format is unknown, or the policy has not been migrated.
+     */
+    public void setPolicyFormat(Context ctx, String format) {
+        UserContext userCtx = getUserCtxFromRequest(ctx);
 
-        String json = new String(policy, StandardCharsets.UTF_8);
+        decide(ctx, userCtx, BLOSSOM_TARGET, "bootstrap", true, "cid is not authorized to set the Blossom policy format");
 
+        PolicyCodec.Format recordFormat;
         try {
-            MemoryPAP pap = new MemoryPAP();
-            pap.setPMLConstants(Map.of("ADMINMSP", new StringValue(ADMINMSP)));
-            pap.deserialize(userCtx, json, new JSONDeserializer());
+            recordFormat = PolicyCodec.Format.valueOf(format);
+        } catch (IllegalArgumentException e) {
+            throw new ChaincodeException("unknown policy format " + format);
+        }
 
-            return pap;
+        try {
+            PolicyStore.setFormat(ctx.getStub(), recordFormat, userCtx);
         } catch (PMException e) {
             throw new ChaincodeException(e);
         }
     }
 
-    private String accountUsersNodeName(String mspid) {
+    private static String profileUserName(String mspid, String role) {
+        return "decision profile " + role + " " + mspid;
+    }
+
+    static String accountUsersNodeName(String mspid) {
         return mspid + " users";
     }
 
-    private String accountObjectNodeName(String mspid) {
+    static String accountObjectNodeName(String mspid) {
         return mspid + " target";
     }
 
-    private String voteObj(String targetMember) {
+    static String voteObj(String targetMember) {
         return targetMember + " vote";
     }
 
     private static String getNGACUserName(Context ctx) {
-        ClientIdentity clientIdentity = ctx.getClientIdentity();
-        X509Certificate cert = clientIdentity.getX509Certificate();
-        String mspid = ctx.getClientIdentity().getMSPID();
-
-        String user;
-        try {
-            JcaX509CertificateHolder jcaX509CertificateHolder = new JcaX509CertificateHolder(cert);
-            X500Name subject = jcaX509CertificateHolder.getSubject();
-            RDN cnRDN = subject.getRDNs(BCStyle.CN)[0];
-            AttributeTypeAndValue first = cnRDN.getFirst();
-            user = first.getValue().toString();
-        } catch (CertificateEncodingException e) {
-            throw new ChaincodeException(e);
-        }
-
-        return user + ":" + mspid;
+        return USER_CONTEXT_CACHE.get(ctx.getClientIdentity()).getUser();
     }
 
     public static UserContext getUserCtxFromRequest(Context ctx) {
-        return new UserContext(getNGACUserName(ctx));
-    }
+        long start = System.nanoTime();
+        UserContext userCtx = new UserContext(getNGACUserName(ctx));
+        DecisionMetrics.record(CERT_PARSE, start);
 
-    private void savePolicy(Context ctx, PAP pap, UserContext user) throws PMException {
-        pap.modify().graph().deleteNode(user.getUser());
-        ctx.getStub().putState("policy", pap.serialize(new JSONSerializer()).getBytes(StandardCharsets.UTF_8));
+        return userCtx;
     }
 }
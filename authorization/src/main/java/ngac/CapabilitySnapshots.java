@@ -0,0 +1,189 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
+import gov.nist.csd.pm.pap.query.UserContext;
+import org.hyperledger.fabric.Logger;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.logging.Level;
+
+import static ngac.BlossomPDP.*;
+
+/**
+ * Materialized privileges of each account's Authorizing Officials. The privileges an Authorizing Official of an account
+ * has on the blossom target and on the account's own target and vote object are stored under a key per account. A read
+ * only decision for an Authorizing Official on one of those targets is then a single read of that key instead of loading
+ * the policy. Decisions on other accounts' objects use the cached policy, including them in every snapshot would make
+ * each policy change quadratic in the number of accounts.
+ *
+ * The snapshots are written in the same transaction as the policy change. Only the snapshots of the accounts whose nodes
+ * are named by a changed policy record are recomputed, a change to a record that does not name any account's node
+ * recomputes every snapshot. Each snapshot holds the policy version it was computed for, and the policy version key
+ * holds the version since which every policy change has updated the snapshots (see
+ * {@link PolicyStore#getSnapshotVersion(byte[])}). A snapshot computed before that version is not used.
+ */
+class CapabilitySnapshots {
+
+    static final String SNAPSHOT = "ngac.capabilities";
+
+    // the suffixes of the names of the nodes signMOU creates for an account
+    private static final String[] ACCOUNT_NODE_SUFFIXES = {
+            " users", " account", " target", " vote attr", " vote", " initiator"
+    };
+    private static final String ACCOUNT_SUFFIX = " account";
+    private static final String RBAC_ACCOUNTS = "RBAC/accounts";
+    private static final String SNAPSHOT_USER = "capability snapshot user";
+
+    private static final Logger log = Logger.getLogger(CapabilitySnapshots.class);
+
+    private CapabilitySnapshots() {}
+
+    /**
+     * Get the accounts whose snapshots may be affected by the changed policy records.
+     *
+     * @return The accounts, or null if a changed record does not name the node of any account and every snapshot has
+     * to be recomputed.
+     */
+    static Set<String> changedAccounts(SortedMap<String, byte[]> before, SortedMap<String, byte[]> after,
+                                       Collection<String> changedKeys) {
+        Set<String> accounts = new HashSet<>();
+        for (String key : changedKeys) {
+            boolean named = false;
+            for (String node : PolicyRecords.nodes(key, before, after)) {
+                String account = accountOf(node);
+                if (account != null) {
+                    accounts.add(account);
+                    named = true;
+                }
+            }
+
+            if (!named) {
+                return null;
+            }
+        }
+
+        return accounts;
+    }
+
+    /**
+     * Compute the snapshots of the given accounts for the given policy version and write the ones that changed. The
+     * snapshots of accounts that are not in the policy are deleted.
+     *
+     * @param accounts The accounts to recompute, null to recompute and rewrite the snapshot of every account.
+     */
+    static void write(ChaincodeStub stub, PAP pap, long policyVersion, Set<String> accounts) throws PMException {
+        Set<String> existing = getAccounts(pap);
+        Set<String> recompute = accounts == null ? existing : new TreeSet<>(accounts);
+
+        int changed = 0;
+        for (String account : recompute) {
+            String key = key(account);
+            if (!existing.contains(account)) {
+                if (!isEmpty(stub.getState(key))) {
+                    stub.delState(key);
+                    changed++;
+                }
+
+                continue;
+            }
+
+            List<String> targets = List.of(BLOSSOM_TARGET, accountObjectNodeName(account), voteObj(account));
+            byte[] capabilities = PolicyCodec.encodeCapabilities(compute(pap, account, targets));
+
+            // a snapshot that did not change keeps the version it was computed for
+            byte[] snapshot = accounts == null ? null : stub.getState(key);
+            if (snapshot == null || snapshot.length < Long.BYTES
+                    || !Arrays.equals(snapshot, Long.BYTES, snapshot.length, capabilities, 0, capabilities.length)) {
+                stub.putState(key, ByteBuffer.allocate(Long.BYTES + capabilities.length)
+                                             .putLong(policyVersion)
+                                             .put(capabilities)
+                                             .array());
+                changed++;
+            }
+        }
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("capability snapshots accounts=%d recomputed=%d changed=%d version=%d",
+                                   existing.size(), recompute.size(), changed, policyVersion));
+        }
+    }
+
+    /**
+     * Get the privileges of an Authorizing Official of the given account on the target.
+     *
+     * @param versionKey The value of the policy version key read in this transaction.
+     *
+     * @return The privileges, or null if there is no current snapshot for the account or the target is not in it.
+     */
+    static Set<String> lookup(ChaincodeStub stub, String account, String target, byte[] versionKey) {
+        long since = PolicyStore.getSnapshotVersion(versionKey);
+        if (since == 0) {
+            return null;
+        }
+
+        byte[] snapshot = stub.getState(key(account));
+        if (isEmpty(snapshot) || snapshot.length <= Long.BYTES) {
+            return null;
+        }
+
+        long version = ByteBuffer.wrap(snapshot).getLong();
+        if (version < since || version > PolicyStore.getVersion(versionKey)) {
+            return null;
+        }
+
+        // a snapshot in a format this chaincode does not know is not used, the policy is loaded instead
+        Map<String, TreeSet<String>> capabilities =
+                PolicyCodec.decodeCapabilities(Arrays.copyOfRange(snapshot, Long.BYTES, snapshot.length));
+        return capabilities == null ? null : capabilities.get(target);
+    }
+
+    private static SortedMap<String, AccessRightSet> compute(PAP pap, String account, List<String> targets)
+            throws PMException {
+        addUser(pap, SNAPSHOT_USER, account, AUTHORIZING_OFFICIAL);
+        try {
+            UserContext userCtx = new UserContext(SNAPSHOT_USER);
+            SortedMap<String, AccessRightSet> capabilities = new TreeMap<>();
+            for (String target : targets) {
+                capabilities.put(target, pap.query().access().computePrivileges(userCtx, target));
+            }
+
+            return capabilities;
+        } finally {
+            pap.modify().graph().deleteNode(SNAPSHOT_USER);
+        }
+    }
+
+    private static Set<String> getAccounts(PAP pap) throws PMException {
+        Set<String> accounts = new TreeSet<>();
+        for (String accountOA : pap.query().graph().getAscendants(RBAC_ACCOUNTS)) {
+            if (accountOA.endsWith(ACCOUNT_SUFFIX)) {
+                accounts.add(accountOA.substring(0, accountOA.length() - ACCOUNT_SUFFIX.length()));
+            }
+        }
+
+        return accounts;
+    }
+
+    private static String accountOf(String node) {
+        for (String suffix : ACCOUNT_NODE_SUFFIXES) {
+            if (node.endsWith(suffix) && node.length() > suffix.length()) {
+                return node.substring(0, node.length() - suffix.length());
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isEmpty(byte[] bytes) {
+        return bytes == null || bytes.length == 0;
+    }
+
+    static String key(String account) {
+        return new CompositeKey(SNAPSHOT, account).toString();
+    }
+}
@@ -0,0 +1,90 @@
+package ngac;
+
+import model.PhaseMetrics;
+import org.hyperledger.fabric.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Latency histograms for the phases of an authorization decision. Metrics are kept for the lifetime of the chaincode
+ * process and a summary is logged every LOG_INTERVAL decisions.
+ */
+public class DecisionMetrics {
+
+    public enum Phase {
+        GRAPH_BUILD,
+        CERT_PARSE,
+        STATUS_INVOKE,
+        POLICY_DESERIALIZE,
+        COMPUTE_PRIVILEGES,
+        POLICY_SERIALIZE
+    }
+
+    static final long LOG_INTERVAL = 1000;
+
+    private static final Logger log = Logger.getLogger("DecisionMetrics");
+
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+    private static final AtomicLong decisions = new AtomicLong();
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record the time since start for the given phase.
+     * @param phase The phase of the decision.
+     * @param start The start of the phase as returned by System.nanoTime().
+     */
+    public static void record(Phase phase, long start) {
+        histograms[phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Count a completed decision, logging a summary of all phases every LOG_INTERVAL decisions.
+     */
+    public static void decisionComplete() {
+        long n = decisions.incrementAndGet();
+        if (n % LOG_INTERVAL == 0 && log.isLoggable(Level.INFO)) {
+            StringBuilder sb = new StringBuilder("decision metrics decisions=").append(n);
+            for (PhaseMetrics metrics : snapshot()) {
+                sb.append(' ').append(metrics.getPhase())
+                  .append("{count=").append(metrics.getCount())
+                  .append(", meanMicros=").append(metrics.getMeanMicros())
+                  .append(", p99Micros=").append(metrics.getP99Micros())
+                  .append('}');
+            }
+            log.info(sb.toString());
+        }
+    }
+
+    public static long getDecisions() {
+        return decisions.get();
+    }
+
+    public static PhaseMetrics[] snapshot() {
+        Phase[] phases = Phase.values();
+        PhaseMetrics[] metrics = new PhaseMetrics[phases.length];
+        for (Phase phase : phases) {
+            LatencyHistogram histogram = histograms[phase.ordinal()];
+            long count = histogram.getCount();
+            metrics[phase.ordinal()] = new PhaseMetrics(
+                    phase.name(),
+                    count,
+                    count == 0 ? 0 : micros(histogram.getTotalNanos()) / count,
+                    micros(histogram.getPercentileNanos(50)),
+                    micros(histogram.getPercentileNanos(99)),
+                    micros(histogram.getMaxNanos())
+            );
+        }
+
+        return metrics;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,78 @@
+package ngac;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free latency histogram with fixed power of two buckets. Bucket i counts the samples in [2^i, 2^(i+1))
+ * nanoseconds. Recording a sample is a handful of atomic increments and does not allocate.
+ */
+class LatencyHistogram {
+
+    static final int NUM_BUCKETS = 48;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    LatencyHistogram() {
+        this.buckets = new AtomicLongArray(NUM_BUCKETS);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        int bucket = nanos == 0 ? 0 : Math.min(NUM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimate the value at the given percentile as the upper bound of the bucket the percentile falls in.
+     * @param percentile A value between 0 and 100.
+     * @return The estimated value in nanoseconds, 0 if no samples have been recorded.
+     */
+    long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * (percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return Math.min((1L << (i + 1)) - 1, getMaxNanos());
+            }
+        }
+
+        return getMaxNanos();
+    }
+}
@@ -0,0 +1,155 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.query.UserContext;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Holds the most recently loaded NGAC policy for the lifetime of the chaincode process, keyed by the SHA-256 digest of
+ * the stored policy. Read only decisions reuse the cached graph as long as the policy on the ledger has not changed.
+ *
+ * The digest is written to the policy version key with every policy change, so checking the cached graph is current is
+ * a read of that one key. The policy itself is only read when the cache has to be loaded. Every endorser makes the same
+ * decision, but not with the same read set: an endorser that loads the policy also has the definitions, the format and
+ * the policy records in its read set, one that uses its cache does not. A transaction endorsed by more than one org
+ * fails endorsement if only some of its endorsers had a current cache, which happens after every policy change. If the
+ * version key was written without a digest the policy is read and hashed for every decision.
+ *
+ * Admin operations modify the policy, so they do not use the cache. They always read the stored policy from the world
+ * state: whether the cache holds the current policy differs from peer to peer, and an admin operation that read the
+ * policy records on one endorser but not on another would fail endorsement.
+ *
+ * Decisions are not made for the requesting user directly. Every user with the same attributes has the same privileges,
+ * so the cached graph holds one decision user per set of attributes (a profile), created the first time the profile is
+ * used. Profiles only exist in the cached graph, they are never saved, and the cached graph is otherwise never modified.
+ * This lets decisions run concurrently under a read lock, only adding a profile or loading a new policy takes the write
+ * lock.
+ */
+class PolicyCache {
+
+    interface ProfileBuilder {
+        void build(PAP pap) throws PMException;
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private byte[] digest;
+    private PAP pap;
+    private Set<String> profiles = new HashSet<>();
+
+    /**
+     * Apply the given function to the graph for the policy in the world state, loading it only if it is not the policy
+     * currently cached. The profile is built with the given builder if it does not already exist in the cached graph.
+     * The function must not modify the graph.
+     *
+     * @param versionKey The value of the policy version key read in this transaction.
+     */
+    <T> T apply(ChaincodeStub stub, byte[] versionKey, UserContext userCtx, String profile, ProfileBuilder builder,
+                Function<PAP, T> function) {
+        PolicyStore.StoredPolicy policy = null;
+        byte[] policyDigest = PolicyStore.getDigest(versionKey);
+        if (policyDigest == null) {
+            policy = PolicyStore.read(stub);
+            policyDigest = policy.digest();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (isCurrent(policyDigest) && profiles.contains(profile)) {
+                hits.incrementAndGet();
+                return function.apply(pap);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!isCurrent(policyDigest)) {
+                misses.incrementAndGet();
+                pap = null;
+                profiles = new HashSet<>();
+                if (policy == null) {
+                    policy = PolicyStore.read(stub);
+                }
+                pap = policy.toPAP(userCtx);
+                digest = policyDigest;
+            }
+
+            if (!profiles.contains(profile)) {
+                buildProfile(profile, builder);
+            }
+
+            // downgrade to the read lock to make the decision
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            return function.apply(pap);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            pap = null;
+            digest = null;
+            profiles = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private boolean isCurrent(byte[] policyDigest) {
+        return pap != null && Arrays.equals(digest, policyDigest);
+    }
+
+    private void buildProfile(String profile, ProfileBuilder builder) {
+        boolean ok = false;
+        try {
+            builder.build(pap);
+            profiles.add(profile);
+            ok = true;
+        } catch (PMException e) {
+            throw new ChaincodeException(e);
+        } finally {
+            // a partially built profile leaves the graph in an unknown state
+            if (!ok && profileNodeExists(profile)) {
+                pap = null;
+                digest = null;
+                profiles = new HashSet<>();
+            }
+        }
+    }
+
+    private boolean profileNodeExists(String profile) {
+        try {
+            return pap != null && pap.query().graph().nodeExists(profile);
+        } catch (PMException e) {
+            return true;
+        }
+    }
+}
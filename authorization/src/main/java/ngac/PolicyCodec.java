@@ -0,0 +1,302 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.graph.node.NodeType;
+import gov.nist.csd.pm.pap.prohibition.ProhibitionSubject;
+import org.apache.commons.lang3.SerializationUtils;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodes the values of the policy records (see {@link PolicyRecords}). Two formats are supported:
+ *
+ * SERIALIZED - Java serialization of the record objects, the format used when the records were introduced.
+ * BINARY - a versioned binary format. Counts are written as varints, strings as a varint length followed by the UTF-8
+ * bytes, and access right sets as a bitmask over {@link #ACCESS_RIGHTS} followed by any access rights not in the table.
+ *
+ * Values are always decoded according to their own format so records written in either format can be read. Every peer
+ * must encode with the same format or their endorsements will not match.
+ *
+ * Capability snapshots (see {@link CapabilitySnapshots}) are always binary and start with the same magic byte followed by
+ * their own format version, so the snapshot format can change independently of the record values.
+ */
+class PolicyCodec {
+
+    enum Format {
+        SERIALIZED,
+        BINARY
+    }
+
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte VERSION = 1;
+    static final byte CAPABILITIES_VERSION = 1;
+
+    /**
+     * The access rights encoded as bits, in bit order. This table can only be appended to, changing the position of an
+     * access right changes the meaning of stored values.
+     */
+    static final List<String> ACCESS_RIGHTS = List.of(
+            "*", "*a", "*r",
+            "bootstrap", "update_mou", "get_mou", "sign_mou", "join", "write_ato", "read_ato", "submit_feedback",
+            "initiate_vote", "vote", "certify_vote"
+    );
+
+    // node and prohibition subject types are written as their index in these tables, which can only be appended to
+    private static final NodeType[] NODE_TYPES = {NodeType.PC, NodeType.UA, NodeType.OA, NodeType.U, NodeType.O};
+    private static final ProhibitionSubject.Type[] SUBJECT_TYPES = {
+            ProhibitionSubject.Type.USER, ProhibitionSubject.Type.USER_ATTRIBUTE, ProhibitionSubject.Type.PROCESS
+    };
+
+    private final Format format;
+
+    PolicyCodec(Format format) {
+        this.format = format;
+    }
+
+    byte[] encodeNode(PolicyRecords.NodeRecord node) {
+        if (format == Format.SERIALIZED) {
+            return SerializationUtils.serialize(node);
+        }
+
+        Writer w = new Writer(VERSION);
+        w.writeByte(typeIndex(NODE_TYPES, node.type));
+        w.writeVarint(node.properties.size());
+        for (Map.Entry<String, String> e : node.properties.entrySet()) {
+            w.writeString(e.getKey());
+            w.writeString(e.getValue());
+        }
+
+        return w.toByteArray();
+    }
+
+    byte[] encodeAccessRights(TreeSet<String> accessRights) {
+        if (format == Format.SERIALIZED) {
+            return SerializationUtils.serialize(accessRights);
+        }
+
+        Writer w = new Writer(VERSION);
+        w.writeAccessRights(accessRights);
+
+        return w.toByteArray();
+    }
+
+    byte[] encodeProhibition(PolicyRecords.ProhibitionRecord prohibition) {
+        if (format == Format.SERIALIZED) {
+            return SerializationUtils.serialize(prohibition);
+        }
+
+        Writer w = new Writer(VERSION);
+        w.writeString(prohibition.subject);
+        w.writeByte(typeIndex(SUBJECT_TYPES, prohibition.subjectType));
+        w.writeAccessRights(prohibition.accessRights);
+        w.writeByte(prohibition.intersection ? 1 : 0);
+        w.writeVarint(prohibition.containers.size());
+        for (Map.Entry<String, Boolean> e : prohibition.containers.entrySet()) {
+            w.writeString(e.getKey());
+            w.writeByte(e.getValue() ? 1 : 0);
+        }
+
+        return w.toByteArray();
+    }
+
+    /**
+     * Encode a map of target to access rights, used for capability snapshots. Always uses the binary format.
+     */
+    static byte[] encodeCapabilities(SortedMap<String, ? extends Set<String>> capabilities) {
+        Writer w = new Writer(CAPABILITIES_VERSION);
+        w.writeVarint(capabilities.size());
+        for (Map.Entry<String, ? extends Set<String>> e : capabilities.entrySet()) {
+            w.writeString(e.getKey());
+            w.writeAccessRights(e.getValue());
+        }
+
+        return w.toByteArray();
+    }
+
+    /**
+     * Decode a map of target to access rights written by {@link #encodeCapabilities(SortedMap)}.
+     *
+     * @return The capabilities, or null if the value is not in the current snapshot format.
+     */
+    static Map<String, TreeSet<String>> decodeCapabilities(byte[] bytes) {
+        if (!isBinary(bytes) || bytes[1] != CAPABILITIES_VERSION) {
+            return null;
+        }
+
+        Reader r = new Reader(bytes, CAPABILITIES_VERSION);
+        int size = r.readVarint();
+        Map<String, TreeSet<String>> capabilities = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            capabilities.put(r.readString(), r.readAccessRights());
+        }
+
+        return capabilities;
+    }
+
+    static PolicyRecords.NodeRecord decodeNode(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, VERSION);
+        NodeType type = NODE_TYPES[r.readByte()];
+        int numProps = r.readVarint();
+        TreeMap<String, String> properties = new TreeMap<>();
+        for (int i = 0; i < numProps; i++) {
+            properties.put(r.readString(), r.readString());
+        }
+
+        return new PolicyRecords.NodeRecord(type, properties);
+    }
+
+    static TreeSet<String> decodeAccessRights(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        return new Reader(bytes, VERSION).readAccessRights();
+    }
+
+    static PolicyRecords.ProhibitionRecord decodeProhibition(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+
+        Reader r = new Reader(bytes, VERSION);
+        String subject = r.readString();
+        ProhibitionSubject.Type subjectType = SUBJECT_TYPES[r.readByte()];
+        TreeSet<String> accessRights = r.readAccessRights();
+        boolean intersection = r.readByte() == 1;
+        int numContainers = r.readVarint();
+        TreeMap<String, Boolean> containers = new TreeMap<>();
+        for (int i = 0; i < numContainers; i++) {
+            containers.put(r.readString(), r.readByte() == 1);
+        }
+
+        return new PolicyRecords.ProhibitionRecord(subject, subjectType, accessRights, intersection, containers);
+    }
+
+    private static boolean isBinary(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    private static <T> int typeIndex(T[] types, T type) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type) {
+                return i;
+            }
+        }
+
+        throw new ChaincodeException("cannot encode type " + type);
+    }
+
+    private static class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Writer(byte version) {
+            out.write(MAGIC);
+            out.write(version);
+        }
+
+        void writeByte(int b) {
+            out.write(b);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void writeAccessRights(Set<String> accessRights) {
+            long mask = 0;
+            List<String> other = new ArrayList<>();
+            for (String ar : accessRights) {
+                int bit = ACCESS_RIGHTS.indexOf(ar);
+                if (bit >= 0) {
+                    mask |= 1L << bit;
+                } else {
+                    other.add(ar);
+                }
+            }
+
+            writeVarint(mask);
+            writeVarint(other.size());
+            for (String ar : other) {
+                writeString(ar);
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buf;
+
+        Reader(byte[] bytes, byte expectedVersion) {
+            this.buf = ByteBuffer.wrap(bytes);
+            buf.get();
+            byte version = buf.get();
+            if (version != expectedVersion) {
+                throw new ChaincodeException("unsupported policy value version " + version);
+            }
+        }
+
+        int readByte() {
+            return buf.get() & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            return value;
+        }
+
+        int readVarint() {
+            return (int) readVarLong();
+        }
+
+        String readString() {
+            byte[] bytes = new byte[readVarint()];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        TreeSet<String> readAccessRights() {
+            TreeSet<String> accessRights = new TreeSet<>();
+            long mask = readVarLong();
+            for (int bit = 0; bit < ACCESS_RIGHTS.size(); bit++) {
+                if ((mask & (1L << bit)) != 0) {
+                    accessRights.add(ACCESS_RIGHTS.get(bit));
+                }
+            }
+
+            int numOther = readVarint();
+            for (int i = 0; i < numOther; i++) {
+                accessRights.add(readString());
+            }
+
+            return accessRights;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ngac;
+
+import gov.nist.csd.pm.impl.memory.pap.MemoryPAP;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.pml.value.StringValue;
+import gov.nist.csd.pm.pap.query.UserContext;
+import gov.nist.csd.pm.pap.serialization.json.JSONDeserializer;
+import gov.nist.csd.pm.pap.serialization.json.JSONSerializer;
+import gov.nist.csd.pm.pap.serialization.pml.PMLDeserializer;
+import org.apache.commons.io.IOUtils;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static ngac.BlossomPDP.ADMINMSP;
+
+/**
+ * Compiles policy.pml into the serialized policy loaded by {@link BlossomPDP#bootstrap}. The gradle compilePolicy task
+ * runs this at build time so PML errors fail the build and bootstrap does not need to compile PML in a transaction.
+ *
+ * Usage: PolicyCompiler <policy.pml> <output json>
+ */
+public class PolicyCompiler {
+
+    static final String COMPILED_RESOURCE = "policy.json";
+
+    // the author of the statements executed while compiling, there is no calling user at build time
+    private static final UserContext COMPILER = new UserContext("blossom_policy_compiler");
+
+    public static void main(String[] args) throws IOException, PMException {
+        if (args.length != 2) {
+            System.err.println("usage: PolicyCompiler <policy.pml> <output json>");
+            System.exit(1);
+        }
+
+        String pml = Files.readString(Paths.get(args[0]));
+        String json = compile(pml).serialize(new JSONSerializer());
+
+        Path out = Paths.get(args[1]);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        Files.writeString(out, json);
+    }
+
+    /**
+     * Compile the given PML with the ADMINMSP constant set.
+     */
+    static PAP compile(String pml) throws PMException {
+        PAP pap = newPAP();
+        pap.deserialize(COMPILER, pml, new PMLDeserializer());
+
+        return pap;
+    }
+
+    /**
+     * Load the policy compiled at build time from the classpath. PML is never compiled in a transaction, use
+     * {@link #compile(String)} from tests or tools that need to compile it.
+     *
+     * @throws ChaincodeException If the compiled policy is not on the classpath.
+     */
+    static PAP loadBootstrapPolicy() throws IOException, PMException {
+        try (InputStream compiled = PolicyCompiler.class.getClassLoader().getResourceAsStream(COMPILED_RESOURCE)) {
+            if (compiled == null) {
+                throw new ChaincodeException("compiled policy " + COMPILED_RESOURCE + " is not packaged with the " +
+                                                     "chaincode, build the chaincode with the compilePolicy task");
+            }
+
+            PAP pap = newPAP();
+            pap.deserialize(COMPILER, IOUtils.toString(compiled, StandardCharsets.UTF_8), new JSONDeserializer());
+
+            return pap;
+        }
+    }
+
+    private static PAP newPAP() throws PMException {
+        PAP pap = new MemoryPAP();
+        pap.setPMLConstants(Map.of("ADMINMSP", new StringValue(ADMINMSP)));
+
+        return pap;
+    }
+}
@@ -0,0 +1,479 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.graph.node.Node;
+import gov.nist.csd.pm.pap.graph.node.NodeType;
+import gov.nist.csd.pm.pap.graph.relationship.AccessRightSet;
+import gov.nist.csd.pm.pap.graph.relationship.Association;
+import gov.nist.csd.pm.pap.prohibition.ContainerCondition;
+import gov.nist.csd.pm.pap.prohibition.Prohibition;
+import gov.nist.csd.pm.pap.prohibition.ProhibitionSubject;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static gov.nist.csd.pm.pap.graph.node.NodeType.*;
+
+/**
+ * Converts the graph and prohibitions of an NGAC policy to and from individual world state records. Each node,
+ * assignment, association, and prohibition is stored under its own composite key so a change to the policy only writes
+ * the records that changed. The records are kept in a sorted map of composite key to value, values are encoded with
+ * {@link PolicyCodec} in the format chosen by the caller.
+ */
+class PolicyRecords {
+
+    static final String NODE = "ngac.node";
+    static final String ASSIGNMENT = "ngac.assign";
+    static final String ASSOCIATION = "ngac.assoc";
+    static final String PROHIBITION = "ngac.prohibition";
+
+    private static final String[] NAMESPACES = {NODE, ASSIGNMENT, ASSOCIATION, PROHIBITION};
+
+    // a byte array of length 1 indicates the assignment exists, the key holds all the information
+    private static final byte[] ASSIGNMENT_VALUE = new byte[]{0};
+
+    private PolicyRecords() {}
+
+    /**
+     * Read all the policy records from the world state.
+     */
+    static SortedMap<String, byte[]> read(ChaincodeStub stub) {
+        SortedMap<String, byte[]> records = new TreeMap<>();
+        for (String namespace : NAMESPACES) {
+            try (QueryResultsIterator<KeyValue> it = stub.getStateByPartialCompositeKey(new CompositeKey(namespace))) {
+                for (KeyValue next : it) {
+                    records.put(next.getKey(), next.getValue());
+                }
+            } catch (Exception e) {
+                throw new ChaincodeException(e);
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Write the records in after that are not in before and delete the records in before that are not in after. A
+     * record stored in a different format but with the same content is not rewritten.
+     *
+     * @return The keys of the records written or deleted.
+     */
+    static SortedSet<String> write(ChaincodeStub stub, SortedMap<String, byte[]> before, SortedMap<String, byte[]> after) {
+        SortedSet<String> changed = new TreeSet<>();
+        for (Map.Entry<String, byte[]> e : after.entrySet()) {
+            byte[] existing = before.get(e.getKey());
+            if (existing == null || !sameRecord(e.getKey(), existing, e.getValue())) {
+                stub.putState(e.getKey(), e.getValue());
+                changed.add(e.getKey());
+            }
+        }
+
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                stub.delState(key);
+                changed.add(key);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Write every record in after whose value is not the same bytes as in before, including records with the same
+     * content stored in a different format. Used to convert the stored records to another format.
+     *
+     * @return The number of records written.
+     */
+    static int rewrite(ChaincodeStub stub, SortedMap<String, byte[]> before, SortedMap<String, byte[]> after) {
+        int written = 0;
+        for (Map.Entry<String, byte[]> e : after.entrySet()) {
+            if (!Arrays.equals(before.get(e.getKey()), e.getValue())) {
+                stub.putState(e.getKey(), e.getValue());
+                written++;
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Get the names of the nodes a record refers to. For a prohibition these are the subject and the containers of the
+     * prohibition in both before and after.
+     */
+    static Set<String> nodes(String key, SortedMap<String, byte[]> before, SortedMap<String, byte[]> after) {
+        CompositeKey compositeKey = CompositeKey.parseCompositeKey(key);
+        if (!compositeKey.getObjectType().equals(PROHIBITION)) {
+            return new HashSet<>(compositeKey.getAttributes());
+        }
+
+        Set<String> nodes = new HashSet<>();
+        for (byte[] value : Arrays.asList(before.get(key), after.get(key))) {
+            if (value != null) {
+                ProhibitionRecord prohibition = PolicyCodec.decodeProhibition(value);
+                nodes.add(prohibition.subject);
+                nodes.addAll(prohibition.containers.keySet());
+            }
+        }
+
+        return nodes;
+    }
+
+    private static boolean sameRecord(String key, byte[] a, byte[] b) {
+        if (Arrays.equals(a, b)) {
+            return true;
+        }
+
+        switch (CompositeKey.parseCompositeKey(key).getObjectType()) {
+            case NODE:
+                return PolicyCodec.decodeNode(a).equals(PolicyCodec.decodeNode(b));
+            case ASSOCIATION:
+                return PolicyCodec.decodeAccessRights(a).equals(PolicyCodec.decodeAccessRights(b));
+            case PROHIBITION:
+                return PolicyCodec.decodeProhibition(a).equals(PolicyCodec.decodeProhibition(b));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Build the records for the graph and prohibitions in the given policy, with values encoded in the given format.
+     */
+    static SortedMap<String, byte[]> fromPAP(PAP pap, PolicyCodec.Format format) throws PMException {
+        PolicyCodec codec = new PolicyCodec(format);
+        SortedMap<String, byte[]> records = new TreeMap<>();
+
+        // walk the graph from the policy classes to find every node
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>(pap.query().graph().getPolicyClasses());
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            if (!visited.add(name)) {
+                continue;
+            }
+
+            Node node = pap.query().graph().getNode(name);
+            records.put(key(NODE, name), codec.encodeNode(new NodeRecord(node)));
+
+            for (String parent : pap.query().graph().getDescendants(name)) {
+                records.put(key(ASSIGNMENT, name, parent), ASSIGNMENT_VALUE);
+            }
+
+            if (node.getType() == UA) {
+                for (Association association : pap.query().graph().getAssociationsWithSource(name)) {
+                    records.put(
+                            key(ASSOCIATION, association.getSource(), association.getTarget()),
+                            codec.encodeAccessRights(new TreeSet<>(association.getAccessRightSet()))
+                    );
+                }
+            }
+
+            if (node.getType() == UA || node.getType() == U) {
+                for (Prohibition prohibition : pap.query().prohibitions().getProhibitionsWithSubject(name)) {
+                    records.put(
+                            key(PROHIBITION, prohibition.getName()),
+                            codec.encodeProhibition(new ProhibitionRecord(prohibition))
+                    );
+                }
+            }
+
+            queue.addAll(pap.query().graph().getAscendants(name));
+        }
+
+        return records;
+    }
+
+    /**
+     * Apply the changes needed to turn the policy described by from into the policy described by to. The given PAP
+     * must currently hold the policy described by from.
+     */
+    static void apply(PAP pap, SortedMap<String, byte[]> from, SortedMap<String, byte[]> to) throws PMException {
+        Parsed before = new Parsed(from);
+        Parsed after = new Parsed(to);
+
+        // remove prohibitions and associations that were deleted or changed, they are recreated at the end
+        for (Map.Entry<String, ProhibitionRecord> e : before.prohibitions.entrySet()) {
+            if (!e.getValue().equals(after.prohibitions.get(e.getKey()))) {
+                pap.modify().prohibitions().deleteProhibition(e.getKey());
+            }
+        }
+
+        for (Map.Entry<List<String>, TreeSet<String>> e : before.associations.entrySet()) {
+            if (!e.getValue().equals(after.associations.get(e.getKey()))) {
+                pap.modify().graph().dissociate(e.getKey().get(0), e.getKey().get(1));
+            }
+        }
+
+        // create new nodes once one of their parents exists, and update the properties of existing nodes
+        Set<List<String>> assigned = new HashSet<>();
+        Map<String, NodeRecord> toCreate = new LinkedHashMap<>();
+        for (Map.Entry<String, NodeRecord> e : after.nodes.entrySet()) {
+            NodeRecord existing = before.nodes.get(e.getKey());
+            if (existing == null) {
+                toCreate.put(e.getKey(), e.getValue());
+            } else if (existing.type != e.getValue().type) {
+                throw new ChaincodeException("cannot change the type of node " + e.getKey());
+            } else if (!existing.properties.equals(e.getValue().properties)) {
+                pap.modify().graph().setNodeProperties(e.getKey(), e.getValue().properties);
+            }
+        }
+
+        while (!toCreate.isEmpty()) {
+            boolean progress = false;
+
+            Iterator<Map.Entry<String, NodeRecord>> it = toCreate.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, NodeRecord> e = it.next();
+                String name = e.getKey();
+                NodeRecord node = e.getValue();
+
+                String parent = null;
+                if (node.type != PC) {
+                    parent = findCreatedParent(after, name, toCreate);
+                    if (parent == null) {
+                        continue;
+                    }
+                }
+
+                createNode(pap, name, node.type, parent);
+                if (!node.properties.isEmpty()) {
+                    pap.modify().graph().setNodeProperties(name, node.properties);
+                }
+
+                if (parent != null) {
+                    assigned.add(List.of(name, parent));
+                }
+
+                it.remove();
+                progress = true;
+            }
+
+            if (!progress) {
+                throw new ChaincodeException("could not restore nodes " + toCreate.keySet() + " from the policy records");
+            }
+        }
+
+        // add new assignments before removing old ones so no node is left without a parent
+        for (List<String> assignment : after.assignments) {
+            if (!before.assignments.contains(assignment) && !assigned.contains(assignment)) {
+                pap.modify().graph().assign(assignment.get(0), List.of(assignment.get(1)));
+            }
+        }
+
+        for (List<String> assignment : before.assignments) {
+            if (!after.assignments.contains(assignment) && after.nodes.containsKey(assignment.get(0))) {
+                pap.modify().graph().deassign(assignment.get(0), List.of(assignment.get(1)));
+            }
+        }
+
+        // delete nodes starting with the ones that no longer have any ascendants
+        Set<String> toDelete = new HashSet<>(before.nodes.keySet());
+        toDelete.removeAll(after.nodes.keySet());
+        while (!toDelete.isEmpty()) {
+            boolean progress = false;
+
+            Iterator<String> it = toDelete.iterator();
+            while (it.hasNext()) {
+                String name = it.next();
+                if (!pap.query().graph().getAscendants(name).isEmpty()) {
+                    continue;
+                }
+
+                pap.modify().graph().deleteNode(name);
+                it.remove();
+                progress = true;
+            }
+
+            if (!progress) {
+                throw new ChaincodeException("could not delete nodes " + toDelete + " from the policy");
+            }
+        }
+
+        for (Map.Entry<List<String>, TreeSet<String>> e : after.associations.entrySet()) {
+            if (!e.getValue().equals(before.associations.get(e.getKey()))) {
+                pap.modify().graph().associate(
+                        e.getKey().get(0),
+                        e.getKey().get(1),
+                        new AccessRightSet(e.getValue().toArray(String[]::new))
+                );
+            }
+        }
+
+        for (Map.Entry<String, ProhibitionRecord> e : after.prohibitions.entrySet()) {
+            if (!e.getValue().equals(before.prohibitions.get(e.getKey()))) {
+                e.getValue().create(pap, e.getKey());
+            }
+        }
+    }
+
+    private static String findCreatedParent(Parsed after, String name, Map<String, NodeRecord> toCreate) {
+        for (List<String> assignment : after.assignments) {
+            if (assignment.get(0).equals(name) && !toCreate.containsKey(assignment.get(1))) {
+                return assignment.get(1);
+            }
+        }
+
+        return null;
+    }
+
+    private static void createNode(PAP pap, String name, NodeType type, String parent) throws PMException {
+        switch (type) {
+            case PC:
+                pap.modify().graph().createPolicyClass(name);
+                break;
+            case UA:
+                pap.modify().graph().createUserAttribute(name, List.of(parent));
+                break;
+            case OA:
+                pap.modify().graph().createObjectAttribute(name, List.of(parent));
+                break;
+            case U:
+                pap.modify().graph().createUser(name, List.of(parent));
+                break;
+            case O:
+                pap.modify().graph().createObject(name, List.of(parent));
+                break;
+            default:
+                throw new ChaincodeException("unknown node type " + type + " for node " + name);
+        }
+    }
+
+    private static String key(String namespace, String... attributes) {
+        return new CompositeKey(namespace, attributes).toString();
+    }
+
+    /**
+     * The records grouped by namespace.
+     */
+    private static class Parsed {
+        final Map<String, NodeRecord> nodes = new HashMap<>();
+        final Set<List<String>> assignments = new LinkedHashSet<>();
+        final Map<List<String>, TreeSet<String>> associations = new HashMap<>();
+        final Map<String, ProhibitionRecord> prohibitions = new HashMap<>();
+
+        Parsed(SortedMap<String, byte[]> records) {
+            for (Map.Entry<String, byte[]> e : records.entrySet()) {
+                CompositeKey key = CompositeKey.parseCompositeKey(e.getKey());
+                List<String> attrs = key.getAttributes();
+
+                switch (key.getObjectType()) {
+                    case NODE:
+                        nodes.put(attrs.get(0), PolicyCodec.decodeNode(e.getValue()));
+                        break;
+                    case ASSIGNMENT:
+                        assignments.add(List.of(attrs.get(0), attrs.get(1)));
+                        break;
+                    case ASSOCIATION:
+                        associations.put(List.of(attrs.get(0), attrs.get(1)), PolicyCodec.decodeAccessRights(e.getValue()));
+                        break;
+                    case PROHIBITION:
+                        prohibitions.put(attrs.get(0), PolicyCodec.decodeProhibition(e.getValue()));
+                        break;
+                    default:
+                        throw new ChaincodeException("unknown policy record " + key);
+                }
+            }
+        }
+    }
+
+    static class NodeRecord implements Serializable {
+        final NodeType type;
+        final TreeMap<String, String> properties;
+
+        NodeRecord(Node node) {
+            this(node.getType(), new TreeMap<>(node.getProperties()));
+        }
+
+        NodeRecord(NodeType type, TreeMap<String, String> properties) {
+            this.type = type;
+            this.properties = properties;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            NodeRecord that = (NodeRecord) o;
+            return type == that.type && properties.equals(that.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, properties);
+        }
+    }
+
+    static class ProhibitionRecord implements Serializable {
+        final String subject;
+        final ProhibitionSubject.Type subjectType;
+        final TreeSet<String> accessRights;
+        final boolean intersection;
+        // container name -> complement
+        final TreeMap<String, Boolean> containers;
+
+        ProhibitionRecord(Prohibition prohibition) {
+            this.subject = prohibition.getSubject().getName();
+            this.subjectType = prohibition.getSubject().getType();
+            this.accessRights = new TreeSet<>(prohibition.getAccessRightSet());
+            this.intersection = prohibition.isIntersection();
+            this.containers = new TreeMap<>();
+            for (ContainerCondition cc : prohibition.getContainers()) {
+                containers.put(cc.getName(), cc.isComplement());
+            }
+        }
+
+        ProhibitionRecord(String subject, ProhibitionSubject.Type subjectType, TreeSet<String> accessRights,
+                          boolean intersection, TreeMap<String, Boolean> containers) {
+            this.subject = subject;
+            this.subjectType = subjectType;
+            this.accessRights = accessRights;
+            this.intersection = intersection;
+            this.containers = containers;
+        }
+
+        void create(PAP pap, String name) throws PMException {
+            List<ContainerCondition> conditions = new ArrayList<>();
+            for (Map.Entry<String, Boolean> e : containers.entrySet()) {
+                conditions.add(new ContainerCondition(e.getKey(), e.getValue()));
+            }
+
+            pap.modify().prohibitions().createProhibition(
+                    name,
+                    new ProhibitionSubject(subject, subjectType),
+                    new AccessRightSet(accessRights.toArray(String[]::new)),
+                    intersection,
+                    conditions
+            );
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ProhibitionRecord that = (ProhibitionRecord) o;
+            return intersection == that.intersection
+                    && subject.equals(that.subject)
+                    && subjectType == that.subjectType
+                    && accessRights.equals(that.accessRights)
+                    && containers.equals(that.containers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subject, subjectType, accessRights, intersection, containers);
+        }
+    }
+}
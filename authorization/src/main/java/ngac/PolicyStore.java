@@ -0,0 +1,333 @@
+package ngac;
+
+import gov.nist.csd.pm.impl.memory.pap.MemoryPAP;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.pml.value.StringValue;
+import gov.nist.csd.pm.pap.query.UserContext;
+import gov.nist.csd.pm.pap.serialization.json.JSONDeserializer;
+import gov.nist.csd.pm.pap.serialization.json.JSONSerializer;
+import org.hyperledger.fabric.Logger;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+import static ngac.BlossomPDP.ADMINMSP;
+import static ngac.DecisionMetrics.Phase.POLICY_DESERIALIZE;
+import static ngac.DecisionMetrics.Phase.POLICY_SERIALIZE;
+
+/**
+ * Reads and writes the NGAC policy in the world state.
+ *
+ * The policy is stored in two parts. The definitions key holds the JSON serialization of the policy as it was when
+ * Blossom was bootstrapped, which includes the operations and routines defined in policy.pml. It is written once. The
+ * graph and prohibitions are stored as individual records (see {@link PolicyRecords}) that are updated as the policy
+ * changes, so an admin operation only writes the records it changed. Loading the policy deserializes the definitions
+ * and applies the difference between the graph in the definitions and the stored records.
+ *
+ * Every write increments the policy version and updates the {@link CapabilitySnapshots} in the same transaction. The
+ * version key holds the version followed by the digest of the policy that was written, so a cache of the loaded policy
+ * can be validated by reading that one key (see {@link PolicyCache}), and the version since which the snapshots have
+ * been kept up to date. Because every write reads and writes the version key, concurrent policy changes always
+ * conflict on it, however few records they change.
+ *
+ * The format of the record values is a chaincode setting stored under the format key, binary if it has not been set. It
+ * is part of the digest of the stored policy so every peer writes records in the same format. See
+ * {@link #setFormat(ChaincodeStub, PolicyCodec.Format, UserContext)}.
+ *
+ * Policies written before the records were introduced are stored as a single JSON blob under the legacy key. They can
+ * still be read and written, and can be converted with {@link #migrate(ChaincodeStub, UserContext)}.
+ */
+class PolicyStore {
+
+    static final String LEGACY_KEY = "policy";
+    static final String DEFINITIONS_KEY = "policy.definitions";
+    static final String VERSION_KEY = "policy_version";
+    static final String FORMAT_KEY = "policy.format";
+
+    static final PolicyCodec.Format DEFAULT_FORMAT = PolicyCodec.Format.BINARY;
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private static final Logger log = Logger.getLogger(PolicyStore.class);
+
+    private PolicyStore() {}
+
+    static boolean exists(ChaincodeStub stub) {
+        return !isEmpty(stub.getState(DEFINITIONS_KEY)) || !isEmpty(stub.getState(LEGACY_KEY));
+    }
+
+    /**
+     * Read the stored policy from the world state.
+     *
+     * @throws ChaincodeException If the policy has not been initialized.
+     */
+    static StoredPolicy read(ChaincodeStub stub) {
+        byte[] definitions = stub.getState(DEFINITIONS_KEY);
+        if (!isEmpty(definitions)) {
+            return new StoredPolicy(definitions, PolicyRecords.read(stub), false, getFormat(stub));
+        }
+
+        byte[] legacy = stub.getState(LEGACY_KEY);
+        if (!isEmpty(legacy)) {
+            return new StoredPolicy(legacy, new TreeMap<>(), true, DEFAULT_FORMAT);
+        }
+
+        throw new ChaincodeException("ngac policy has not been initialized");
+    }
+
+    /**
+     * Write a newly created policy to the world state, with the records in the format currently set.
+     */
+    static void create(ChaincodeStub stub, PAP pap) throws PMException {
+        PolicyCodec.Format format = getFormat(stub);
+        byte[] definitions = serialize(pap);
+        SortedMap<String, byte[]> records = PolicyRecords.fromPAP(pap, format);
+
+        stub.putState(DEFINITIONS_KEY, definitions);
+        PolicyRecords.write(stub, new TreeMap<>(), records);
+        policyChanged(stub, pap, digest(definitions, records, format), null);
+    }
+
+    /**
+     * Set the format the policy records are written in and rewrite every stored record that is not in that format.
+     *
+     * @throws ChaincodeException If the policy has not been initialized or has not been migrated from the legacy key.
+     */
+    static void setFormat(ChaincodeStub stub, PolicyCodec.Format format, UserContext userCtx) throws PMException {
+        StoredPolicy stored = read(stub);
+        if (stored.legacy) {
+            throw new ChaincodeException("ngac policy has to be migrated before the record format can be set");
+        }
+
+        PAP pap = stored.toPAP(userCtx);
+        SortedMap<String, byte[]> records = PolicyRecords.fromPAP(pap, format);
+        int rewritten = PolicyRecords.rewrite(stub, stored.records, records);
+        if (rewritten == 0 && format == stored.format) {
+            return;
+        }
+
+        stub.putState(FORMAT_KEY, format.name().getBytes(StandardCharsets.UTF_8));
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("set policy record format=%s rewritten=%d total=%d", format, rewritten, records.size()));
+        }
+
+        // the policy itself did not change, no snapshot has to be recomputed
+        policyChanged(stub, pap, digest(stored.definitions, records, format), Set.of());
+    }
+
+    /**
+     * Get the format policy records are written in.
+     */
+    static PolicyCodec.Format getFormat(ChaincodeStub stub) {
+        byte[] bytes = stub.getState(FORMAT_KEY);
+        if (isEmpty(bytes)) {
+            return DEFAULT_FORMAT;
+        }
+
+        return PolicyCodec.Format.valueOf(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write the changes made to the given policy since it was loaded from the stored policy, in the format of the stored
+     * policy. A legacy policy is written back to the legacy key in full.
+     */
+    static void save(ChaincodeStub stub, StoredPolicy stored, PAP pap) throws PMException {
+        byte[] policyDigest;
+        Set<String> changedAccounts = null;
+        if (stored.legacy) {
+            byte[] json = serialize(pap);
+            stub.putState(LEGACY_KEY, json);
+            policyDigest = digest(json, new TreeMap<>(), stored.format);
+        } else {
+            SortedMap<String, byte[]> records = PolicyRecords.fromPAP(pap, stored.format);
+            SortedSet<String> changed = PolicyRecords.write(stub, stored.records, records);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("saved policy records changed=%d total=%d", changed.size(), stored.records.size()));
+            }
+            policyDigest = digest(stored.definitions, records, stored.format);
+            changedAccounts = CapabilitySnapshots.changedAccounts(stored.records, records, changed);
+        }
+
+        policyChanged(stub, pap, policyDigest, changedAccounts);
+    }
+
+    /**
+     * Get the current policy version, 0 if the policy has never been written with a version.
+     */
+    static long getVersion(ChaincodeStub stub) {
+        return getVersion(stub.getState(VERSION_KEY));
+    }
+
+    /**
+     * Get the version from the given value of the version key, 0 if it is empty.
+     */
+    static long getVersion(byte[] versionKey) {
+        if (versionKey == null || versionKey.length < Long.BYTES) {
+            return 0;
+        }
+
+        return ByteBuffer.wrap(versionKey).getLong();
+    }
+
+    /**
+     * Get the digest of the stored policy from the given value of the version key.
+     *
+     * @return The digest, or null if the version key is empty or was written without a digest.
+     */
+    static byte[] getDigest(byte[] versionKey) {
+        if (versionKey == null || versionKey.length < Long.BYTES + DIGEST_LENGTH) {
+            return null;
+        }
+
+        return Arrays.copyOfRange(versionKey, Long.BYTES, Long.BYTES + DIGEST_LENGTH);
+    }
+
+    /**
+     * Get the policy version since which every policy change has updated the capability snapshots from the given value
+     * of the version key. Snapshots computed for an earlier version are not current.
+     *
+     * @return The version, or 0 if the version key is empty or was written without it.
+     */
+    static long getSnapshotVersion(byte[] versionKey) {
+        if (versionKey == null || versionKey.length < Long.BYTES + DIGEST_LENGTH + Long.BYTES) {
+            return 0;
+        }
+
+        return ByteBuffer.wrap(versionKey, Long.BYTES + DIGEST_LENGTH, Long.BYTES).getLong();
+    }
+
+    /**
+     * Increment the policy version and update the capability snapshots of the changed accounts, or of every account if
+     * changedAccounts is null or the snapshots have not been kept up to date by the previous change.
+     */
+    private static void policyChanged(ChaincodeStub stub, PAP pap, byte[] policyDigest, Set<String> changedAccounts)
+            throws PMException {
+        byte[] versionKey = stub.getState(VERSION_KEY);
+        long version = getVersion(versionKey) + 1;
+
+        long snapshotVersion = getSnapshotVersion(versionKey);
+        if (snapshotVersion == 0 || changedAccounts == null) {
+            snapshotVersion = version;
+            changedAccounts = null;
+        }
+
+        stub.putState(VERSION_KEY, ByteBuffer.allocate(Long.BYTES + DIGEST_LENGTH + Long.BYTES)
+                                             .putLong(version)
+                                             .put(policyDigest)
+                                             .putLong(snapshotVersion)
+                                             .array());
+
+        CapabilitySnapshots.write(stub, pap, version, changedAccounts);
+    }
+
+    /**
+     * Convert a legacy policy into the definitions and records layout and delete the legacy key.
+     *
+     * @throws ChaincodeException If there is no legacy policy to migrate.
+     */
+    static void migrate(ChaincodeStub stub, UserContext userCtx) throws PMException {
+        StoredPolicy stored = read(stub);
+        if (!stored.legacy) {
+            throw new ChaincodeException("ngac policy has already been migrated");
+        }
+
+        create(stub, stored.toPAP(userCtx));
+        stub.delState(LEGACY_KEY);
+    }
+
+    private static byte[] serialize(PAP pap) throws PMException {
+        long start = System.nanoTime();
+        String json = pap.serialize(new JSONSerializer());
+        DecisionMetrics.record(POLICY_SERIALIZE, start);
+
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] digest(byte[] definitions, SortedMap<String, byte[]> records, PolicyCodec.Format format) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(format.name().getBytes(StandardCharsets.UTF_8));
+            md.update(definitions);
+            for (Map.Entry<String, byte[]> e : records.entrySet()) {
+                md.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+                md.update(e.getValue());
+            }
+
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new ChaincodeException(e);
+        }
+    }
+
+    private static boolean isEmpty(byte[] bytes) {
+        return bytes == null || bytes.length == 0;
+    }
+
+    /**
+     * The policy as read from the world state in one transaction.
+     */
+    static class StoredPolicy {
+
+        private final byte[] definitions;
+        private final SortedMap<String, byte[]> records;
+        private final boolean legacy;
+        private final PolicyCodec.Format format;
+
+        private StoredPolicy(byte[] definitions, SortedMap<String, byte[]> records, boolean legacy,
+                             PolicyCodec.Format format) {
+            this.definitions = definitions;
+            this.records = records;
+            this.legacy = legacy;
+            this.format = format;
+        }
+
+        boolean isLegacy() {
+            return legacy;
+        }
+
+        PolicyCodec.Format getFormat() {
+            return format;
+        }
+
+        /**
+         * A SHA-256 digest of the record format, definitions and records, two stored policies with the same digest load
+         * the same PAP and write records in the same format.
+         */
+        byte[] digest() {
+            return PolicyStore.digest(definitions, records, format);
+        }
+
+        /**
+         * Load the stored policy into a new in memory PAP.
+         */
+        PAP toPAP(UserContext userCtx) {
+            try {
+                long start = System.nanoTime();
+                MemoryPAP pap = new MemoryPAP();
+                pap.setPMLConstants(Map.of("ADMINMSP", new StringValue(ADMINMSP)));
+                pap.deserialize(userCtx, new String(definitions, StandardCharsets.UTF_8), new JSONDeserializer());
+
+                if (!legacy) {
+                    PolicyRecords.apply(pap, PolicyRecords.fromPAP(pap, format), records);
+                }
+                DecisionMetrics.record(POLICY_DESERIALIZE, start);
+
+                return pap;
+            } catch (PMException e) {
+                throw new ChaincodeException(e);
+            }
+        }
+    }
+}
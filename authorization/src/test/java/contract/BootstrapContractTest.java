@@ -4,6 +4,7 @@ import mock.MockContext;
 import mock.MockIdentity;
 import model.Account;
 import model.Status;
+import ngac.BlossomPDP;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.junit.jupiter.api.Test;
 
@@ -26,7 +27,7 @@ class BootstrapContractTest {
         mockContext.setTimestamp(Instant.now());
         blossomContract.Bootstrap(mockContext);
 
-        assertTrue(mockContext.getStub().getState("policy").length > 0);
+        assertTrue(BlossomPDP.isPolicyInitialized(mockContext));
         assertTrue(mockContext.getStub().getState(accountKey(ORG1_MSP)).length > 0);
 
         Account account = new AccountContract().GetAccount(mockContext, ORG1_MSP);
@@ -1,11 +1,8 @@
 package contract;
 
-import gov.nist.csd.pm.impl.memory.pap.MemoryPAP;
 import gov.nist.csd.pm.pap.PAP;
 import gov.nist.csd.pm.pap.exception.PMException;
-import gov.nist.csd.pm.pap.pml.value.StringValue;
 import gov.nist.csd.pm.pap.query.UserContext;
-import gov.nist.csd.pm.pap.serialization.json.JSONDeserializer;
 import mock.MockContext;
 import mock.MockContextUtil;
 import mock.MockEvent;
@@ -18,7 +15,6 @@ import org.hyperledger.fabric.shim.ChaincodeException;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
@@ -641,13 +637,8 @@ class VoteContractTest {
     }
 
     private void testAccountStatus(MockContext ctx, String targetMember, Status expected) {
-        byte[] policy = ctx.getStub().getState("policy");
-        String json = new String(policy, StandardCharsets.UTF_8);
-
         try {
-            PAP pap = new MemoryPAP();
-            pap.setPMLConstants(Map.of("ADMINMSP", new StringValue(BlossomPDP.ADMINMSP)));
-            pap.deserialize(new UserContext(""), json, new JSONDeserializer());
+            PAP pap = BlossomPDP.getPAPState(ctx, new UserContext(""));
 
             Collection<String> parents = pap.query().graph().getDescendants(targetMember + " users");
             assertTrue(parents.contains(expected.toString().toLowerCase()));
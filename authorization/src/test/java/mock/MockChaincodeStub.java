@@ -25,6 +25,8 @@ public class MockChaincodeStub implements ChaincodeStub {
     private Instant timestamp;
     private String txId;
     private MockEvent mockEvent;
+    private int rangeQueries;
+    private int writes;
 
     public MockChaincodeStub(MockIdentity initialIdentity) {
         setCreator(initialIdentity);
@@ -60,6 +62,14 @@ public class MockChaincodeStub implements ChaincodeStub {
         this.timestamp = instant;
     }
 
+    public int getRangeQueries() {
+        return rangeQueries;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+
     public void setTxId(String txId) {
         this.txId = txId;
     }
@@ -128,6 +138,7 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public void putState(String key, byte[] value) {
+        writes++;
         List<byte[]> keyHistory = ledger.getOrDefault(key, new ArrayList<>());
         keyHistory.add(0, value);
         ledger.put(key, keyHistory);
@@ -140,11 +151,13 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public void delState(String key) {
+        writes++;
         ledger.remove(key);
     }
 
     @Override
     public QueryResultsIterator<KeyValue> getStateByRange(String startKey, String endKey) {
+        rangeQueries++;
         List<KeyValue> keyValues = new ArrayList<>();
         for (Map.Entry<String, List<byte[]>> e : ledger.entrySet()) {
             if (!(e.getKey().contains(startKey) && e.getKey().contains(endKey))) {
@@ -164,17 +177,29 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        rangeQueries++;
+
+        // composite keys are returned in key order like the peer does
+        List<KeyValue> keyValues = new ArrayList<>();
+        for (Map.Entry<String, List<byte[]>> e : new TreeMap<>(ledger).entrySet()) {
+            if (!e.getKey().startsWith(compositeKey)) {
+                continue;
+            }
+
+            keyValues.add(new MockKeyValue(e.getKey(), e.getValue().get(0)));
+        }
+
+        return new MockQueryResultsIterator(keyValues);
     }
 
     @Override
     public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String objectType, String... attributes) {
-        throw new RuntimeException("not yet implemented");
+        return getStateByPartialCompositeKey(new CompositeKey(objectType, attributes));
     }
 
     @Override
     public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(CompositeKey compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        return getStateByPartialCompositeKey(compositeKey.toString());
     }
 
     @Override
@@ -184,12 +209,12 @@ public class MockChaincodeStub implements ChaincodeStub {
 
     @Override
     public CompositeKey createCompositeKey(String objectType, String... attributes) {
-        throw new RuntimeException("not yet implemented");
+        return new CompositeKey(objectType, attributes);
     }
 
     @Override
     public CompositeKey splitCompositeKey(String compositeKey) {
-        throw new RuntimeException("not yet implemented");
+        return CompositeKey.parseCompositeKey(compositeKey);
     }
 
     @Override
@@ -11,7 +11,6 @@ import gov.nist.csd.pm.pap.op.Operation;
 import gov.nist.csd.pm.pap.pml.context.ExecutionContext;
 import gov.nist.csd.pm.pap.pml.executable.operation.PMLOperation;
 import gov.nist.csd.pm.pap.query.UserContext;
-import gov.nist.csd.pm.pap.serialization.json.JSONSerializer;
 import gov.nist.csd.pm.pdp.OperationRequest;
 import gov.nist.csd.pm.pdp.PDP;
 import model.Account;
@@ -20,7 +19,6 @@ import org.apache.commons.lang3.SerializationUtils;
 import org.hyperledger.fabric.contract.Context;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +28,7 @@ import static contract.AccountContract.accountKey;
 import static mock.MockOrgs.*;
 import static model.Status.AUTHORIZED;
 import static ngac.BlossomPDP.getPAPState;
+import static ngac.BlossomPDP.savePAPState;
 import static ngac.BlossomPDP.getUserCtxFromRequest;
 
 public class MockContextUtil {
@@ -150,7 +149,7 @@ public class MockContextUtil {
         pmlOp.withOperands(Map.of("accountId", mspid, "status", status.toString()))
                 .execute(pap);
 
-        ctx.getStub().putState("policy", pap.serialize(new JSONSerializer()).getBytes(StandardCharsets.UTF_8));
+        savePAPState(ctx, pap);
 
         // retrieve the account and update the status
         Account account = new AccountContract().GetAccount(ctx, mspid);
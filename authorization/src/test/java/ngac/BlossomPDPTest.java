@@ -11,12 +11,14 @@ import mock.MockContext;
 import mock.MockIdentity;
 import model.Status;
 import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Map;
+import java.util.*;
 
 import static mock.MockContextUtil.*;
 import static mock.MockOrgs.*;
@@ -39,7 +41,7 @@ class BlossomPDPTest {
         pmlOp.withOperands(Map.of("accountId", mspid, "status", status.toString()))
                 .execute(pap);
 
-        ctx.getStub().putState("policy", pap.serialize(new JSONSerializer()).getBytes(StandardCharsets.UTF_8));
+        savePAPState(ctx, pap);
     }
 
     @Nested
@@ -144,6 +146,200 @@ class BlossomPDPTest {
         }
     }
 
+    @Nested
+    class CachedPolicyTest {
+        @Test
+        void testDeniedDecisionDoesNotAffectLaterDecisions() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            assertThrows(ChaincodeException.class, () -> pdp.writeATO(ctx, ORG3_MSP));
+            assertDoesNotThrow(() -> pdp.writeATO(ctx, ORG2_MSP));
+            assertDoesNotThrow(() -> pdp.writeATO(ctx, ORG2_MSP));
+        }
+
+        @Test
+        void testProfileUsersAreNotSaved() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            pdp.writeATO(ctx, ORG2_MSP);
+            pdp.initiateVote(ctx, ORG3_MSP);
+
+            PAP pap = getPAPState(ctx, getUserCtxFromRequest(ctx));
+            assertFalse(pap.query().graph().nodeExists("decision profile Authorizing Official Org2MSP"));
+        }
+
+        @Test
+        void testPolicyUpdateIsUsedByLaterDecisions() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            assertDoesNotThrow(() -> pdp.readATO(ctx, ORG3_MSP));
+
+            updateAccountStatus(ctx, ORG2_MSP, PENDING);
+            assertThrows(ChaincodeException.class, () -> pdp.readATO(ctx, ORG3_MSP));
+
+            updateAccountStatus(ctx, ORG2_MSP, AUTHORIZED);
+            assertDoesNotThrow(() -> pdp.readATO(ctx, ORG3_MSP));
+        }
+    }
+
+    @Nested
+    class PolicyStorageTest {
+        @Test
+        void testStoredRecordsMatchLoadedPolicy() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            pdp.initiateVote(ctx, ORG3_MSP);
+
+            PAP pap = getPAPState(ctx, getUserCtxFromRequest(ctx));
+            assertTrue(PolicyRecords.write(ctx.getStub(), PolicyRecords.read(ctx.getStub()), PolicyRecords.fromPAP(pap, PolicyStore.DEFAULT_FORMAT)).isEmpty());
+        }
+
+        @Test
+        void testAdminOperationsReadStoredPolicy() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            // load the current policy into the cache
+            pdp.readATO(ctx, ORG3_MSP);
+
+            // every admin operation reads the records, whether or not the cache holds the current policy
+            int rangeQueries = ctx.getStub().getRangeQueries();
+            pdp.initiateVote(ctx, ORG3_MSP);
+            int initiateVoteQueries = ctx.getStub().getRangeQueries() - rangeQueries;
+            assertTrue(initiateVoteQueries > 0);
+
+            rangeQueries = ctx.getStub().getRangeQueries();
+            pdp.certifyVote(ctx, ORG3_MSP, "AUTHORIZED", false);
+            assertEquals(initiateVoteQueries, ctx.getStub().getRangeQueries() - rangeQueries);
+        }
+
+        @Test
+        void testCapabilitySnapshotsAreUpdatedWithPolicy() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            byte[] versionKey = ctx.getStub().getState(PolicyStore.VERSION_KEY);
+            Set<String> privileges = CapabilitySnapshots.lookup(ctx.getStub(), ORG2_MSP, "Org2MSP target", versionKey);
+            assertTrue(privileges.contains("join"));
+            assertTrue(privileges.contains("write_ato"));
+            assertNull(CapabilitySnapshots.lookup(ctx.getStub(), ORG2_MSP, "Org3MSP target", versionKey));
+            byte[] org3Snapshot = ctx.getStub().getState(CapabilitySnapshots.key(ORG3_MSP));
+
+            updateAccountStatus(ctx, ORG2_MSP, PENDING);
+            versionKey = ctx.getStub().getState(PolicyStore.VERSION_KEY);
+            assertEquals(PolicyStore.getVersion(ctx.getStub()), PolicyStore.getVersion(versionKey));
+
+            // a pending account can no longer join but can still write its ATO
+            privileges = CapabilitySnapshots.lookup(ctx.getStub(), ORG2_MSP, "Org2MSP target", versionKey);
+            assertFalse(privileges.contains("join"));
+            assertTrue(privileges.contains("write_ato"));
+
+            // the snapshot of an account the change did not name is not rewritten and is still current
+            assertArrayEquals(org3Snapshot, ctx.getStub().getState(CapabilitySnapshots.key(ORG3_MSP)));
+            assertTrue(CapabilitySnapshots.lookup(ctx.getStub(), ORG3_MSP, "Org3MSP target", versionKey).contains("join"));
+        }
+
+        @Test
+        void testChangedAccounts() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            SortedMap<String, byte[]> before = PolicyRecords.read(ctx.getStub());
+
+            updateAccountStatus(ctx, ORG2_MSP, PENDING);
+            SortedMap<String, byte[]> after = PolicyRecords.read(ctx.getStub());
+
+            Set<String> changed = new HashSet<>(before.keySet());
+            changed.addAll(after.keySet());
+            changed.removeIf(key -> Arrays.equals(before.get(key), after.get(key)));
+            assertEquals(Set.of(ORG2_MSP), CapabilitySnapshots.changedAccounts(before, after, changed));
+
+            String globalKey = new CompositeKey(PolicyRecords.ASSIGNMENT, "pending", "Status").toString();
+            assertNull(CapabilitySnapshots.changedAccounts(before, after, List.of(globalKey)));
+        }
+
+        @Test
+        void testVersionKeyHasDigestOfStoredPolicy() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            updateAccountStatus(ctx, ORG2_MSP, PENDING);
+
+            byte[] versionKey = ctx.getStub().getState(PolicyStore.VERSION_KEY);
+            assertEquals(PolicyStore.getVersion(ctx.getStub()), PolicyStore.getVersion(versionKey));
+            assertArrayEquals(PolicyStore.read(ctx.getStub()).digest(), PolicyStore.getDigest(versionKey));
+        }
+
+        @Test
+        void testOutdatedSnapshotIsNotUsed() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            long version = PolicyStore.getVersion(ctx.getStub());
+            ctx.getStub().putState(PolicyStore.VERSION_KEY, ByteBuffer.allocate(Long.BYTES).putLong(version + 1).array());
+
+            byte[] versionKey = ctx.getStub().getState(PolicyStore.VERSION_KEY);
+            assertNull(CapabilitySnapshots.lookup(ctx.getStub(), ORG2_MSP, "Org2MSP target", versionKey));
+            assertDoesNotThrow(() -> pdp.readATO(ctx, ORG3_MSP));
+            assertThrows(ChaincodeException.class, () -> pdp.writeATO(ctx, ORG3_MSP));
+        }
+
+        @Test
+        void testMigrateLegacyPolicy() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG1_AO);
+            String json = getPAPState(ctx, getUserCtxFromRequest(ctx)).serialize(new JSONSerializer());
+
+            MockContext legacyCtx = new MockContext(MockIdentity.ORG1_AO);
+            legacyCtx.getStub().putState("policy", json.getBytes(StandardCharsets.UTF_8));
+            assertDoesNotThrow(() -> pdp.updateMOU(legacyCtx));
+
+            pdp.migratePolicy(legacyCtx);
+            assertEquals(0, legacyCtx.getStub().getState("policy").length);
+            assertTrue(isPolicyInitialized(legacyCtx));
+            assertDoesNotThrow(() -> pdp.updateMOU(legacyCtx));
+
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> pdp.migratePolicy(legacyCtx));
+            assertEquals("ngac policy has already been migrated", e.getMessage());
+        }
+
+        @Test
+        void testSaveAndReloadInEachFormat() throws Exception {
+            for (PolicyCodec.Format format : PolicyCodec.Format.values()) {
+                MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG1_AO);
+                pdp.setPolicyFormat(ctx, format.name());
+                assertEquals(format, PolicyStore.getFormat(ctx.getStub()));
+                assertRecordsInFormat(ctx, format);
+
+                // records written by an admin operation use the format that is set
+                ctx.setClientIdentity(MockIdentity.ORG2_AO);
+                pdp.initiateVote(ctx, ORG3_MSP);
+                assertRecordsInFormat(ctx, format);
+
+                PAP pap = getPAPState(ctx, getUserCtxFromRequest(ctx));
+                assertTrue(pap.query().graph().getAdjacentDescendants("Org2MSP users").contains("Org3MSP initiator"));
+                assertTrue(PolicyRecords.write(ctx.getStub(), PolicyRecords.read(ctx.getStub()), PolicyRecords.fromPAP(pap, format)).isEmpty());
+                assertDoesNotThrow(() -> pdp.certifyVote(ctx, ORG3_MSP, "AUTHORIZED", false));
+            }
+        }
+
+        @Test
+        void testSetPolicyFormatUnknownFormat() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG1_AO);
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> pdp.setPolicyFormat(ctx, "XML"));
+            assertEquals("unknown policy format XML", e.getMessage());
+        }
+
+        @Test
+        void testSetPolicyFormatUnauthorized() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> pdp.setPolicyFormat(ctx, "SERIALIZED"));
+            assertEquals("cid is not authorized to set the Blossom policy format", e.getMessage());
+        }
+
+        private void assertRecordsInFormat(MockContext ctx, PolicyCodec.Format format) {
+            for (Map.Entry<String, byte[]> e : PolicyRecords.read(ctx.getStub()).entrySet()) {
+                if (e.getKey().startsWith(new CompositeKey(PolicyRecords.ASSIGNMENT).toString())) {
+                    continue;
+                }
+
+                assertEquals(format == PolicyCodec.Format.BINARY, e.getValue()[0] == PolicyCodec.MAGIC, e.getKey());
+            }
+        }
+
+        @Test
+        void testMigrateUnauthorized() throws Exception {
+            MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG2_AO);
+            ChaincodeException e = assertThrows(ChaincodeException.class, () -> pdp.migratePolicy(ctx));
+            assertEquals("cid is not authorized to migrate the Blossom policy", e.getMessage());
+        }
+    }
+
     @Nested
     class WriteATOTest {
         @Test
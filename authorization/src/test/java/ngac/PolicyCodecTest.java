@@ -0,0 +1,109 @@
+package ngac;
+
+import gov.nist.csd.pm.pap.graph.node.NodeType;
+import gov.nist.csd.pm.pap.prohibition.ProhibitionSubject;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyCodecTest {
+
+    PolicyCodec binary = new PolicyCodec(PolicyCodec.Format.BINARY);
+    PolicyCodec serialized = new PolicyCodec(PolicyCodec.Format.SERIALIZED);
+
+    @Nested
+    class NodeTest {
+        @Test
+        void testRoundTrip() {
+            PolicyRecords.NodeRecord node = new PolicyRecords.NodeRecord(NodeType.UA, new TreeMap<>(Map.of("k", "v")));
+            assertEquals(node, PolicyCodec.decodeNode(binary.encodeNode(node)));
+            assertEquals(node, PolicyCodec.decodeNode(serialized.encodeNode(node)));
+        }
+    }
+
+    @Nested
+    class AccessRightsTest {
+        @Test
+        void testRoundTrip() {
+            TreeSet<String> ars = new TreeSet<>(Set.of("read_ato", "write_ato", "*r"));
+            assertEquals(ars, PolicyCodec.decodeAccessRights(binary.encodeAccessRights(ars)));
+            assertEquals(ars, PolicyCodec.decodeAccessRights(serialized.encodeAccessRights(ars)));
+        }
+
+        @Test
+        void testAccessRightNotInTable() {
+            TreeSet<String> ars = new TreeSet<>(Set.of("vote", "custom"));
+            assertEquals(ars, PolicyCodec.decodeAccessRights(binary.encodeAccessRights(ars)));
+        }
+
+        @Test
+        void testBinaryIsSmaller() {
+            TreeSet<String> ars = new TreeSet<>(Set.of("write_ato", "submit_feedback", "read_ato"));
+            byte[] bytes = binary.encodeAccessRights(ars);
+            assertTrue(bytes.length < serialized.encodeAccessRights(ars).length);
+            assertEquals(5, bytes.length);
+        }
+    }
+
+    @Nested
+    class CapabilitiesTest {
+        @Test
+        void testRoundTrip() {
+            SortedMap<String, TreeSet<String>> capabilities = new TreeMap<>(Map.of(
+                    "blossom_target", new TreeSet<>(Set.of("sign_mou", "get_mou")),
+                    "Org2MSP target", new TreeSet<>()
+            ));
+            assertEquals(capabilities, PolicyCodec.decodeCapabilities(PolicyCodec.encodeCapabilities(capabilities)));
+        }
+
+        @Test
+        void testUnknownVersionIsNotDecoded() {
+            byte[] bytes = PolicyCodec.encodeCapabilities(new TreeMap<>(Map.of("t", new TreeSet<>(Set.of("vote")))));
+            assertEquals(PolicyCodec.MAGIC, bytes[0]);
+            assertEquals(PolicyCodec.CAPABILITIES_VERSION, bytes[1]);
+
+            bytes[1] = PolicyCodec.CAPABILITIES_VERSION + 1;
+            assertNull(PolicyCodec.decodeCapabilities(bytes));
+            assertNull(PolicyCodec.decodeCapabilities(new byte[]{0, 0, 0}));
+        }
+    }
+
+    @Nested
+    class ProhibitionTest {
+        @Test
+        void testRoundTrip() {
+            PolicyRecords.ProhibitionRecord prohibition = new PolicyRecords.ProhibitionRecord(
+                    "Org2MSP users",
+                    ProhibitionSubject.Type.USER_ATTRIBUTE,
+                    new TreeSet<>(Set.of("initiate_vote")),
+                    true,
+                    new TreeMap<>(Map.of("Org2MSP account", true, "RBAC/accounts", false))
+            );
+            assertEquals(prohibition, PolicyCodec.decodeProhibition(binary.encodeProhibition(prohibition)));
+            assertEquals(prohibition, PolicyCodec.decodeProhibition(serialized.encodeProhibition(prohibition)));
+        }
+
+        @Test
+        void testSubjectTypes() {
+            for (ProhibitionSubject.Type type : ProhibitionSubject.Type.values()) {
+                PolicyRecords.ProhibitionRecord prohibition = new PolicyRecords.ProhibitionRecord(
+                        "subject", type, new TreeSet<>(Set.of("vote")), false, new TreeMap<>()
+                );
+                assertEquals(prohibition, PolicyCodec.decodeProhibition(binary.encodeProhibition(prohibition)));
+            }
+
+            // the subject type is stored by its position in a fixed table, not by the enum ordinal
+            PolicyRecords.ProhibitionRecord prohibition = new PolicyRecords.ProhibitionRecord(
+                    "s", ProhibitionSubject.Type.USER_ATTRIBUTE, new TreeSet<>(), false, new TreeMap<>()
+            );
+            assertEquals(1, binary.encodeProhibition(prohibition)[4]);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ngac;
+
+import com.sun.management.ThreadMXBean;
+import gov.nist.csd.pm.pap.PAP;
+import gov.nist.csd.pm.pap.exception.PMException;
+import gov.nist.csd.pm.pap.pml.context.ExecutionContext;
+import gov.nist.csd.pm.pap.pml.executable.operation.PMLOperation;
+import gov.nist.csd.pm.pap.query.UserContext;
+import gov.nist.csd.pm.pap.serialization.json.JSONSerializer;
+import mock.MockContext;
+import mock.MockIdentity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static mock.MockContextUtil.newTestMockContextWithAccounts;
+import static mock.MockOrgs.ORG3_MSP;
+import static ngac.BlossomPDP.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures how the policy operations grow with the number of member accounts. For each size the policy is onboarded with
+ * that many authorized accounts and every operation is timed, the fastest of several runs is kept. The tests fail if an
+ * operation's latency, allocated bytes or the stored policy size grow worse than linearly between two sizes, or if the
+ * number of world state keys a policy change writes depends on the number of accounts.
+ *
+ * Not run with the unit tests. Run with: gradle scaleTest [-Pscale.sizes=10,100,1000,5000]
+ */
+@Tag("scale")
+@EnabledIfSystemProperty(named = "blossom.scale", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PolicyScaleTest {
+
+    private static final String DEFAULT_SIZES = "10,100,1000,5000";
+    private static final int WARMUP = 2;
+    private static final int RUNS = 5;
+
+    // allowed factor over linear growth between two sizes, absorbs measurement noise
+    private static final double TOLERANCE = 1.5;
+
+    private static final String SIGN_MOU = "signMOU";
+    private static final String INITIATE_VOTE = "initiateVote";
+    private static final String CERTIFY_VOTE = "certifyVote";
+    private static final String READ_ATO = "readATO";
+    private static final List<String> OPERATIONS = List.of(SIGN_MOU, INITIATE_VOTE, CERTIFY_VOTE, READ_ATO);
+
+    private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final BlossomPDP pdp = new BlossomPDP();
+
+    private int[] sizes;
+    private final Map<String, long[]> latency = new HashMap<>();
+    private final Map<String, long[]> allocated = new HashMap<>();
+    private final Map<String, long[]> writes = new HashMap<>();
+    private long[] storedBytes;
+    private long[] jsonBytes;
+
+    @BeforeAll
+    void measure() throws Exception {
+        sizes = Arrays.stream(System.getProperty("blossom.scale.sizes", DEFAULT_SIZES).split(","))
+                      .map(String::trim)
+                      .mapToInt(Integer::parseInt)
+                      .toArray();
+        for (String op : OPERATIONS) {
+            latency.put(op, new long[sizes.length]);
+            allocated.put(op, new long[sizes.length]);
+            writes.put(op, new long[sizes.length]);
+        }
+        storedBytes = new long[sizes.length];
+        jsonBytes = new long[sizes.length];
+
+        for (int i = 0; i < sizes.length; i++) {
+            measure(i, sizes[i]);
+        }
+
+        report();
+    }
+
+    @Test
+    void testSignMOUGrowsLinearly() {
+        assertLinear(SIGN_MOU);
+    }
+
+    @Test
+    void testInitiateVoteGrowsLinearly() {
+        assertLinear(INITIATE_VOTE);
+    }
+
+    @Test
+    void testCertifyVoteGrowsLinearly() {
+        assertLinear(CERTIFY_VOTE);
+    }
+
+    @Test
+    void testReadATOGrowsLinearly() {
+        assertLinear(READ_ATO);
+    }
+
+    @Test
+    void testPolicyChangesWriteConstantKeys() {
+        // only the changed records, the version key and the snapshots of the accounts named by the changes are written
+        for (String op : List.of(SIGN_MOU, INITIATE_VOTE, CERTIFY_VOTE)) {
+            long[] opWrites = writes.get(op);
+            for (int i = 1; i < sizes.length; i++) {
+                assertEquals(opWrites[0], opWrites[i],
+                             String.format("%s wrote %d keys with %d accounts and %d keys with %d accounts", op,
+                                           opWrites[0], sizes[0], opWrites[i], sizes[i]));
+            }
+        }
+    }
+
+    @Test
+    void testPolicySizeGrowsLinearly() {
+        assertLinear("stored policy bytes", storedBytes);
+        assertLinear("json policy bytes", jsonBytes);
+    }
+
+    private void measure(int i, int accounts) throws Exception {
+        MockContext ctx = newTestMockContextWithAccounts(MockIdentity.ORG1_AO);
+        UserContext admin = getUserCtxFromRequest(ctx);
+
+        // Org1MSP, Org2MSP and Org3MSP are already members
+        PAP pap = getPAPState(ctx, admin);
+        for (int n = 3; n < accounts; n++) {
+            String account = "Member" + n + "MSP";
+            executeOperation(pap, admin, "signMOU", Map.of("accountId", account));
+            executeOperation(pap, admin, "updateAccountStatus", Map.of("accountId", account, "status", "AUTHORIZED"));
+        }
+        savePAPState(ctx, pap);
+
+        storedBytes[i] = storedSize(ctx);
+        jsonBytes[i] = getPAPState(ctx, admin).serialize(new JSONSerializer()).getBytes(StandardCharsets.UTF_8).length;
+
+        // a new account signing the MOU, the transaction loads, updates and saves the policy
+        int[] signed = {0};
+        run(ctx, i, SIGN_MOU, () -> {
+            PAP signPAP = getPAPState(ctx, admin);
+            executeOperation(signPAP, admin, "signMOU", Map.of("accountId", "Signer" + signed[0]++ + "MSP"));
+            savePAPState(ctx, signPAP);
+        });
+
+        // certifying a failed vote undoes the initiateVote changes, so every run starts from the same policy
+        ctx.setClientIdentity(MockIdentity.ORG2_AO);
+        for (int r = 0; r < WARMUP + RUNS; r++) {
+            measureRun(ctx, i, r, INITIATE_VOTE, () -> pdp.initiateVote(ctx, ORG3_MSP));
+            measureRun(ctx, i, r, CERTIFY_VOTE, () -> pdp.certifyVote(ctx, ORG3_MSP, "AUTHORIZED", false));
+        }
+
+        run(ctx, i, READ_ATO, () -> pdp.readATO(ctx, ORG3_MSP));
+    }
+
+    private void run(MockContext ctx, int i, String op, Operation operation) throws Exception {
+        for (int r = 0; r < WARMUP + RUNS; r++) {
+            measureRun(ctx, i, r, op, operation);
+        }
+    }
+
+    private void measureRun(MockContext ctx, int i, int run, String op, Operation operation) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        int keys = ctx.getStub().getWrites();
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        operation.run();
+        long elapsed = System.nanoTime() - start;
+        bytes = threadMXBean.getThreadAllocatedBytes(threadId) - bytes;
+        writes.get(op)[i] = ctx.getStub().getWrites() - keys;
+
+        if (run < WARMUP) {
+            return;
+        }
+
+        long[] opLatency = latency.get(op);
+        long[] opAllocated = allocated.get(op);
+        if (run == WARMUP || elapsed < opLatency[i]) {
+            opLatency[i] = elapsed;
+        }
+        if (run == WARMUP || bytes < opAllocated[i]) {
+            opAllocated[i] = bytes;
+        }
+    }
+
+    private void report() {
+        StringBuilder sb = new StringBuilder("policy scale\n");
+        sb.append(String.format("%-14s %8s %14s %14s %12s%n", "operation", "accounts", "latency (us)", "allocated (KB)",
+                                "keys written"));
+        for (String op : OPERATIONS) {
+            for (int i = 0; i < sizes.length; i++) {
+                sb.append(String.format("%-14s %8d %14.1f %14.1f %12d%n", op, sizes[i], latency.get(op)[i] / 1e3,
+                                        allocated.get(op)[i] / 1024.0, writes.get(op)[i]));
+            }
+        }
+        sb.append(String.format("%-14s %8s %14s %14s%n", "policy", "accounts", "stored (KB)", "json (KB)"));
+        for (int i = 0; i < sizes.length; i++) {
+            sb.append(String.format("%-14s %8d %14.1f %14.1f%n", "", sizes[i], storedBytes[i] / 1024.0,
+                                    jsonBytes[i] / 1024.0));
+        }
+
+        System.out.print(sb);
+    }
+
+    private void assertLinear(String op) {
+        assertLinear(op + " latency", latency.get(op));
+        assertLinear(op + " allocated bytes", allocated.get(op));
+    }
+
+    private void assertLinear(String name, long[] values) {
+        for (int i = 1; i < sizes.length; i++) {
+            double growth = (double) values[i] / Math.max(1, values[i - 1]);
+            double linear = (double) sizes[i] / sizes[i - 1];
+            assertTrue(growth <= linear * TOLERANCE,
+                       String.format("%s grew %.1fx from %d to %d accounts, linear growth is %.1fx", name, growth,
+                                     sizes[i - 1], sizes[i], linear));
+        }
+    }
+
+    private static long storedSize(MockContext ctx) {
+        long size = ctx.getStub().getState(PolicyStore.DEFINITIONS_KEY).length;
+        for (Map.Entry<String, byte[]> e : PolicyRecords.read(ctx.getStub()).entrySet()) {
+            size += e.getKey().length() + e.getValue().length;
+        }
+
+        return size;
+    }
+
+    private static void executeOperation(PAP pap, UserContext userCtx, String name, Map<String, Object> operands)
+            throws PMException {
+        PMLOperation pmlOp = (PMLOperation) pap.query().operations().getAdminOperation(name);
+        pmlOp.setCtx(new ExecutionContext(userCtx, pap));
+        pmlOp.withOperands(operands).execute(pap);
+    }
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+}